@@ -0,0 +1,88 @@
+package gg.nya.tgirlclicker.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering the alternative mode redirect page through Thymeleaf against the pre-rendered
+ * {@link RedirectPageTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedirectPageBenchmark {
+
+    private static final String LINK = "https://example.com/some/path?query=value&other=1";
+
+    private TemplateEngine templateEngine;
+    private JakartaServletWebApplication webApplication;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest gzipRequest;
+    private RedirectPageTemplate redirectPageTemplate;
+
+    @Setup
+    public void setUp() throws IOException {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCacheable(true);
+        templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        MockServletContext servletContext = new MockServletContext();
+        webApplication = JakartaServletWebApplication.buildApplication(servletContext);
+        request = new MockHttpServletRequest(servletContext, "GET", "/abcd");
+        gzipRequest = new MockHttpServletRequest(servletContext, "GET", "/abcd");
+        gzipRequest.addHeader("Accept-Encoding", "gzip, deflate, br");
+
+        redirectPageTemplate = new RedirectPageTemplate(templateEngine, true);
+        // Render the template once up front, as the application does on the first request
+        redirectPageTemplate.write(request, new MockHttpServletResponse(), LINK);
+    }
+
+    @Benchmark
+    public String thymeleaf() {
+        WebContext context = new WebContext(webApplication.buildExchange(request, new MockHttpServletResponse()),
+                Locale.ENGLISH, Map.of("link", LINK));
+        return templateEngine.process("redirect", context);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse preRendered() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        redirectPageTemplate.write(request, response, LINK);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse preRenderedGzip() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        redirectPageTemplate.write(gzipRequest, response, LINK);
+        return response;
+    }
+}
@@ -0,0 +1,52 @@
+package gg.nya.tgirlclicker.interceptor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks client IP extraction from the forwarding headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientIpBenchmark {
+
+    @Param({"remoteAddr", "xRealIp", "xForwardedFor", "xForwardedForChain"})
+    public String headers;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/abcd");
+        request.setRemoteAddr("10.0.0.1");
+        switch (headers) {
+            case "xRealIp" -> request.addHeader("X-Real-IP", "203.0.113.7");
+            case "xForwardedFor" -> request.addHeader("X-Forwarded-For", "203.0.113.7");
+            case "xForwardedForChain" ->
+                    request.addHeader("X-Forwarded-For", "203.0.113.7, 198.51.100.2, 192.0.2.44, 10.0.0.1");
+            default -> {
+            }
+        }
+    }
+
+    @Benchmark
+    public String getClientIpAddress() {
+        return RequestLoggingInterceptor.getClientIpAddress(request);
+    }
+}
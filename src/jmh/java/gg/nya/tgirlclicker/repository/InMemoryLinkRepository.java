@@ -0,0 +1,62 @@
+package gg.nya.tgirlclicker.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory stand-in for {@link LinkRepository} used by the benchmarks.
+ * Only the lookups used on the benchmarked paths are supported, all other methods throw.
+ */
+public class InMemoryLinkRepository implements InvocationHandler {
+
+    private final Map<String, Link> linksByShorthand = new HashMap<>();
+    private List<Date> recentCreationDates = List.of();
+
+    /**
+     * Creates a repository proxy backed by this stand-in.
+     * @return the repository
+     */
+    public LinkRepository asRepository() {
+        return (LinkRepository) Proxy.newProxyInstance(LinkRepository.class.getClassLoader(),
+                new Class<?>[]{LinkRepository.class}, this);
+    }
+
+    /**
+     * Adds a link to the repository.
+     * @param link the link to add
+     */
+    public void add(Link link) {
+        linksByShorthand.put(link.getShorthand(), link);
+    }
+
+    /**
+     * Sets the creation dates returned for any client IP, newest first.
+     * @param recentCreationDates the creation dates
+     */
+    public void setRecentCreationDates(List<Date> recentCreationDates) {
+        this.recentCreationDates = recentCreationDates;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "existsByShorthand" -> linksByShorthand.containsKey((String) args[0]);
+            case "findLinkByShorthand" -> Optional.ofNullable(linksByShorthand.get((String) args[0]));
+            case "findTargetByShorthand" -> Optional.ofNullable(linksByShorthand.get((String) args[0]))
+                    .map(link -> new LinkTarget(link.getShorthand(), link.getLink(), link.isAlternativeMode()));
+            case "findRecentCreationDatesByClientIp" -> recentCreationDates;
+            case "sumClickCount" -> 0L;
+            case "incrementClickCounts" -> null;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "InMemoryLinkRepository";
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+}
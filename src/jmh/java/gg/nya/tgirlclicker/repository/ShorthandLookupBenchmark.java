@@ -0,0 +1,116 @@
+package gg.nya.tgirlclicker.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving a shorthand through the full {@link Link} entity with the {@link LinkTarget} projection used
+ * on the redirect path, against an embedded PostgreSQL database. The repository is created without the bulkhead and
+ * replica proxies of the application, and each variant runs in its own fork with its own warmup. Allocations per
+ * lookup are reported by the {@code gc} profiler as {@code gc.alloc.rate.norm}, the average size of the rows read
+ * from the database is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShorthandLookupBenchmark {
+
+    private static final int LINK_COUNT = 10_000;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private LinkRepository linkRepository;
+    private String[] shorthands;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(LookupConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username", "postgres",
+                        "spring.datasource.password", "postgres",
+                        "spring.jpa.hibernate.ddl-auto", "validate",
+                        "logging.level.root", "WARN"))
+                .run();
+        linkRepository = context.getBean(LinkRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        shorthands = new String[LINK_COUNT];
+        List<Object[]> rows = new ArrayList<>(LINK_COUNT);
+        for (int i = 0; i < LINK_COUNT; i++) {
+            shorthands[i] = "b" + Integer.toString(i, 36);
+            rows.add(new Object[]{"https://example.com/benchmark/" + i, shorthands[i]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO links (alternative_mode, click_count, client_ip, created_date, link, "
+                + "shorthand, user_agent) VALUES (false, 0, '127.0.0.1', now(), ?, ?, 'benchmark')", rows);
+        jdbcTemplate.execute("ANALYZE links");
+
+        System.out.printf("Average row size: entity %s bytes, projection %s bytes%n",
+                jdbcTemplate.queryForObject("SELECT round(avg(pg_column_size(l.*))) FROM links l", Long.class),
+                jdbcTemplate.queryForObject("SELECT round(avg(pg_column_size(ROW(shorthand, link, "
+                        + "alternative_mode)))) FROM links", Long.class));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public Optional<Link> findLinkByShorthand() {
+        return linkRepository.findLinkByShorthand(nextShorthand());
+    }
+
+    @Benchmark
+    public Optional<LinkTarget> findTargetByShorthand() {
+        return linkRepository.findTargetByShorthand(nextShorthand());
+    }
+
+    private String nextShorthand() {
+        String shorthand = shorthands[next];
+        next = (next + 1) % LINK_COUNT;
+        return shorthand;
+    }
+
+    /**
+     * Only the persistence layer of the application, with the schema created by the Flyway migrations.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Link.class)
+    @EnableJpaRepositories(basePackageClasses = LinkRepository.class)
+    static class LookupConfiguration {
+    }
+}
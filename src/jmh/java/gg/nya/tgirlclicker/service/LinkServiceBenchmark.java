@@ -0,0 +1,90 @@
+package gg.nya.tgirlclicker.service;
+
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import gg.nya.tgirlclicker.repository.InMemoryLinkRepository;
+import gg.nya.tgirlclicker.repository.Link;
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import gg.nya.tgirlclicker.service.clicklog.ClickEventLog;
+import gg.nya.tgirlclicker.service.coordination.ClusterCoordinator;
+import gg.nya.tgirlclicker.service.index.ShorthandIndex;
+import gg.nya.tgirlclicker.service.trending.TrendingLinks;
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks shorthand resolution through {@link LinkService} against an in-memory repository, with and without
+ * the resolution cache. The shorthand index and click event log are disabled here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkServiceBenchmark {
+
+    private static final int LINK_COUNT = 10_000;
+
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    private LinkService linkService;
+    private String[] shorthands;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryLinkRepository repositoryStandIn = new InMemoryLinkRepository();
+        shorthands = new String[LINK_COUNT];
+        for (int i = 0; i < LINK_COUNT; i++) {
+            shorthands[i] = "s" + Integer.toString(i, 36);
+            repositoryStandIn.add(new Link("https://example.com/" + i, i % 10 == 0, shorthands[i], "127.0.0.1",
+                    "benchmark"));
+        }
+
+        LinkRepository repository = repositoryStandIn.asRepository();
+        LinkMetrics linkMetrics = new LinkMetrics(new SimpleMeterRegistry());
+        ClickCountBuffer clickCountBuffer = new ClickCountBuffer(repository, 500);
+        ShorthandCache shorthandCache = new ShorthandCache(cacheSize, Duration.ofHours(1), 10_000,
+                Duration.ofSeconds(30));
+        CreationRateLimiter creationRateLimiter = new CreationRateLimiter(repository, 1000);
+        linkService = new LinkService(repository, clickCountBuffer, shorthandCache,
+                new TotalClickCounter(repository, clickCountBuffer), () -> {
+                    throw new UnsupportedOperationException();
+                }, creationRateLimiter, new LinkUrlNormalizer(true, true, true), linkMetrics,
+                new ShorthandIndex(null, false, Path.of("unused"), 0, 0),
+                new ClickEventLog(false, Path.of("unused"), 1, Duration.ofHours(1), 1, 1, "unused"),
+                new TrendingLinks(16384, 20, 1 << 22),
+                new ClusterCoordinator(false, null, null, shorthandCache, creationRateLimiter, 50,
+                        Duration.ofSeconds(10), Duration.ofSeconds(30), 1),
+                Duration.ofSeconds(1));
+    }
+
+    @Benchmark
+    public Optional<ResolvedLink> resolveExisting() {
+        String shorthand = shorthands[next];
+        next = (next + 1) % LINK_COUNT;
+        return linkService.retrieveAndIncrementClickCount(shorthand, "203.0.113.7", "benchmark");
+    }
+
+    @Benchmark
+    public Optional<ResolvedLink> resolveMissing() {
+        return linkService.retrieveAndIncrementClickCount("missing", "203.0.113.7", "benchmark");
+    }
+}
@@ -0,0 +1,54 @@
+package gg.nya.tgirlclicker.service;
+
+import gg.nya.tgirlclicker.repository.InMemoryLinkRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the penalty calculation behind {@code getNextLinkDurationMinutes} for clients with a given number of
+ * recent link creations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PenaltyBenchmark {
+
+    @Param({"0", "3", "10"})
+    public int recentCreations;
+
+    private CreationRateLimiter creationRateLimiter;
+
+    @Setup
+    public void setUp() {
+        InMemoryLinkRepository repository = new InMemoryLinkRepository();
+        List<Date> dates = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < recentCreations; i++) {
+            dates.add(new Date(now - i * 60_000L));
+        }
+        repository.setRecentCreationDates(dates);
+        creationRateLimiter = new CreationRateLimiter(repository.asRepository(), 1000);
+    }
+
+    @Benchmark
+    public int getRemainingPenaltyMinutes() {
+        return creationRateLimiter.getRemainingPenaltyMinutes("203.0.113.7");
+    }
+}
@@ -0,0 +1,74 @@
+package gg.nya.tgirlclicker.service.index;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks lookups in the memory-mapped shorthand table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShorthandIndexBenchmark {
+
+    private static final int LINK_COUNT = 100_000;
+
+    private Path file;
+    private MappedShorthandTable table;
+    private String[] shorthands;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("shorthand-index", ".bin");
+        table = MappedShorthandTable.create(file, 1 << 18, LINK_COUNT * 64, 1);
+        shorthands = new String[LINK_COUNT];
+        for (int i = 0; i < LINK_COUNT; i++) {
+            shorthands[i] = "s" + Integer.toString(i, 36);
+            table.put(i + 1, shorthands[i], ("https://example.com/" + i).getBytes(StandardCharsets.UTF_8), false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        table.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long find() {
+        String shorthand = shorthands[next];
+        next = (next + 1) % LINK_COUNT;
+        return table.find(shorthand);
+    }
+
+    @Benchmark
+    public long findMissing() {
+        return table.find("missing");
+    }
+
+    @Benchmark
+    public String findAndReadLink() {
+        String shorthand = shorthands[next];
+        next = (next + 1) % LINK_COUNT;
+        return table.link(table.find(shorthand));
+    }
+}
@@ -0,0 +1,72 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import gg.nya.tgirlclicker.repository.InMemoryLinkRepository;
+import gg.nya.tgirlclicker.repository.Link;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks shorthand generation.
+ * The legacy random allocator is measured against an in-memory repository filled to a given share of the
+ * 4-character hex code space, the sequence allocator by its permutation alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShorthandAllocatorBenchmark {
+
+    private static final int HEX_CODE_SPACE = 1 << 16;
+
+    @Param({"0", "50", "90", "99"})
+    public int fillPercent;
+
+    private RandomShorthandAllocator randomAllocator;
+    private Base62Permutation permutation;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLinkRepository repository = new InMemoryLinkRepository();
+        int filled = HEX_CODE_SPACE * fillPercent / 100;
+        for (int i = 0; i < filled; i++) {
+            repository.add(new Link("https://example.com/" + i, false, String.format("%04x", i), "127.0.0.1",
+                    "benchmark"));
+        }
+        randomAllocator = new RandomShorthandAllocator(repository.asRepository(),
+                new LinkMetrics(new SimpleMeterRegistry()));
+        permutation = new Base62Permutation("benchmark-key", ShorthandAllocator.MIN_LENGTH,
+                ShorthandAllocator.MAX_LENGTH);
+    }
+
+    @Benchmark
+    public String generateRandomShorthand() {
+        return RandomShorthandAllocator.generateRandomShorthand(ShorthandAllocator.MIN_LENGTH);
+    }
+
+    @Benchmark
+    public String generateUniqueShorthand() {
+        return randomAllocator.generateUniqueShorthand();
+    }
+
+    @Benchmark
+    public String permuteSequence() {
+        return permutation.encode(sequence++ % 1_000_000_000L);
+    }
+}
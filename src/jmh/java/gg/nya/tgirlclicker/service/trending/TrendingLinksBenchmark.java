@@ -0,0 +1,65 @@
+package gg.nya.tgirlclicker.service.trending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks recording clicks in the trending sketch from concurrent threads, with a few hot links receiving most
+ * of the clicks. Clicks come from a pool of client IPs, so part of them are repeated clicks of a client, which are
+ * dropped by the dedup filter. The filter is cleared before each iteration, as it would be by the decay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TrendingLinksBenchmark {
+
+    private static final int LINK_COUNT = 100_000;
+    private static final int CLIENT_COUNT = 10_000;
+
+    private TrendingLinks trendingLinks;
+    private String[] shorthands;
+    private String[] clientIps;
+
+    @Setup
+    public void setUp() {
+        trendingLinks = new TrendingLinks(16384, 20, 1 << 22);
+        shorthands = new String[LINK_COUNT];
+        for (int i = 0; i < LINK_COUNT; i++) {
+            shorthands[i] = "s" + Integer.toString(i, 36);
+        }
+        clientIps = new String[CLIENT_COUNT];
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            clientIps[i] = "10.0." + (i >> 8) + "." + (i & 0xFF);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void decay() {
+        trendingLinks.decay();
+    }
+
+    @Benchmark
+    public void record() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Half of the clicks go to the 100 most popular links
+        int index = random.nextBoolean() ? random.nextInt(100) : random.nextInt(LINK_COUNT);
+        trendingLinks.record(shorthands[index], clientIps[random.nextInt(CLIENT_COUNT)]);
+    }
+}
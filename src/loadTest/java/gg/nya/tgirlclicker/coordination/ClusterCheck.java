@@ -0,0 +1,125 @@
+package gg.nya.tgirlclicker.coordination;
+
+import gg.nya.tgirlclicker.TgirlclickerApplication;
+import gg.nya.tgirlclicker.service.CreationRateLimiter;
+import gg.nya.tgirlclicker.service.LinkService;
+import gg.nya.tgirlclicker.service.ShorthandCache;
+import gg.nya.tgirlclicker.service.coordination.ClusterCoordinator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checks the cache invalidation between instances. Starts two instances in one JVM against a single embedded
+ * PostgreSQL database and verifies that a link event clears a negative cache entry on the other instance, that a
+ * creation on one instance raises the penalty seen by the other, and that an instance resyncs after its listening
+ * connection was terminated. Run with {@code ./gradlew clusterCheck}.
+ */
+public class ClusterCheck {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    public static void main(String[] args) throws Exception {
+        Path workDir = Files.createTempDirectory("tgirlclicker-cluster");
+        boolean passed;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             ConfigurableApplicationContext nodeA = startNode(postgres, workDir.resolve("a"));
+             ConfigurableApplicationContext nodeB = startNode(postgres, workDir.resolve("b"))) {
+            ClusterCoordinator coordinatorA = nodeA.getBean(ClusterCoordinator.class);
+            ClusterCoordinator coordinatorB = nodeB.getBean(ClusterCoordinator.class);
+            await("both instances listening", () -> coordinatorA.isConnected() && coordinatorB.isConnected());
+
+            passed = checkLinkEvent(coordinatorA, nodeB.getBean(ShorthandCache.class))
+                    & checkPenaltyEvent(nodeA.getBean(LinkService.class), nodeB.getBean(CreationRateLimiter.class))
+                    & checkResync(nodeA.getBean(JdbcTemplate.class), coordinatorB);
+        }
+        System.out.println(passed ? "All cluster checks passed" : "Some cluster checks failed");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext startNode(EmbeddedPostgres postgres, Path dataDir) {
+        SpringApplication application = new SpringApplication(TgirlclickerApplication.class);
+        application.setDefaultProperties(Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", "postgres",
+                "server.port", "0",
+                "management.server.port", "0",
+                "tgirlclicker.shorthand.key", "cluster-check-shorthand-key",
+                "tgirlclicker.shorthand-index.path", dataDir.resolve("shorthand-index.bin").toString(),
+                "tgirlclicker.click-log.directory", dataDir.resolve("clicks").toString(),
+                "tgirlclicker.coordination.keepalive-interval", "PT1S",
+                "logging.level.gg.nya.tgirlclicker", "WARN"));
+        return application.run();
+    }
+
+    /**
+     * A shorthand cached as missing on B must become resolvable once A announces it.
+     */
+    private static boolean checkLinkEvent(ClusterCoordinator coordinatorA, ShorthandCache shorthandCacheB) {
+        String shorthand = "cluster-check";
+        shorthandCacheB.resolve(shorthand, key -> Optional.empty());
+
+        long start = System.nanoTime();
+        coordinatorA.publishLinkChanged(shorthand);
+        boolean passed = await("link event clears the negative cache entry",
+                () -> shorthandCacheB.getMissingShorthands().getIfPresent(shorthand) == null);
+        if (passed) {
+            System.out.printf("  propagated in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        }
+        return passed;
+    }
+
+    /**
+     * B must see the penalty of a client that created links through A after having loaded its history before.
+     */
+    private static boolean checkPenaltyEvent(LinkService linkServiceA, CreationRateLimiter creationRateLimiterB) {
+        String clientIp = "203.0.113.7";
+        if (creationRateLimiterB.getRemainingPenaltyMinutes(clientIp) != 0) {
+            System.out.println("FAILED: fresh client is already under penalty");
+            return false;
+        }
+        // The second creation within the window puts the client under penalty
+        linkServiceA.createOrFindLink("https://example.com/cluster-check/1", false, clientIp, "cluster-check");
+        linkServiceA.createOrFindLink("https://example.com/cluster-check/2", false, clientIp, "cluster-check");
+        return await("penalty event reloads the creation history",
+                () -> creationRateLimiterB.getRemainingPenaltyMinutes(clientIp) > 0);
+    }
+
+    /**
+     * B must reconnect and clear its caches after its listening connection was terminated.
+     */
+    private static boolean checkResync(JdbcTemplate jdbcTemplate, ClusterCoordinator coordinatorB) {
+        long resyncs = coordinatorB.getResyncs();
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = ?",
+                "tgirlclicker-coordinator-" + coordinatorB.getNodeId());
+        return await("reconnect with resync after the connection was terminated",
+                () -> coordinatorB.getResyncs() > resyncs && coordinatorB.isConnected());
+    }
+
+    private static boolean await(String description, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                System.out.println("FAILED: " + description);
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        System.out.println("OK: " + description);
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package gg.nya.tgirlclicker.loadtest;
+
+/**
+ * Endpoints driven by the load test, with the status code a successful request answers with.
+ */
+enum Endpoint {
+    REDIRECT("GET /{shorthand}", 302),
+    INDEX("GET /", 200),
+    CREATE("POST /links", 302);
+
+    final String label;
+    final int expectedStatus;
+
+    Endpoint(String label, int expectedStatus) {
+        this.label = label;
+        this.expectedStatus = expectedStatus;
+    }
+}
@@ -0,0 +1,58 @@
+package gg.nya.tgirlclicker.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies of one endpoint for a single client thread. Recorders of all clients are merged after the run.
+ */
+class LatencyRecorder {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long latencyNanos, boolean success) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void reset() {
+        count = 0;
+        errors = 0;
+    }
+
+    void mergeInto(LatencyRecorder target) {
+        for (int i = 0; i < count; i++) {
+            target.record(latenciesNanos[i], true);
+        }
+        target.errors += errors;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * Sorts the recorded latencies, must be called before {@link #percentileMillis(double)}.
+     */
+    void sort() {
+        Arrays.sort(latenciesNanos, 0, count);
+    }
+
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return latenciesNanos[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+    }
+}
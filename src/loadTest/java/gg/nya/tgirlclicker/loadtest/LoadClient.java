@@ -0,0 +1,121 @@
+package gg.nya.tgirlclicker.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single simulated client issuing requests at a fixed rate until it is stopped.
+ * Requests are scheduled open-loop: each one has an intended start time, and its latency is measured from that time
+ * rather than from when it was actually sent. A slow response therefore delays the following requests and their
+ * waiting time is counted, instead of the client silently sending fewer requests (coordinated omission).
+ */
+class LoadClient implements Runnable {
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final String[] shorthands;
+    private final ZipfSampler popularity;
+    private final int redirectWeight;
+    private final int indexWeight;
+    private final int totalWeight;
+    private final long intervalNanos;
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+
+    private volatile boolean running = true;
+    private volatile boolean resetRequested;
+
+    LoadClient(HttpClient httpClient, URI baseUri, String[] shorthands, ZipfSampler popularity, LoadTestConfig config) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.shorthands = shorthands;
+        this.popularity = popularity;
+        this.redirectWeight = config.redirectWeight();
+        this.indexWeight = config.indexWeight();
+        this.totalWeight = config.redirectWeight() + config.indexWeight() + config.createWeight();
+        this.intervalNanos = 1_000_000_000L * config.concurrency() / config.rate();
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Clients start at random offsets within one interval, so their requests are spread evenly
+        long intendedStart = System.nanoTime() + random.nextLong(intervalNanos);
+        while (running) {
+            if (resetRequested) {
+                recorders.values().forEach(LatencyRecorder::reset);
+                resetRequested = false;
+            }
+
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!running) {
+                return;
+            }
+
+            int pick = random.nextInt(totalWeight);
+            Endpoint endpoint = pick < redirectWeight ? Endpoint.REDIRECT
+                    : pick < redirectWeight + indexWeight ? Endpoint.INDEX : Endpoint.CREATE;
+            HttpRequest request = buildRequest(endpoint, random);
+
+            int status;
+            try {
+                status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e) {
+                status = -1;
+            }
+            recorders.get(endpoint).record(System.nanoTime() - intendedStart, status == endpoint.expectedStatus);
+            intendedStart += intervalNanos;
+        }
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint, ThreadLocalRandom random) {
+        return switch (endpoint) {
+            case REDIRECT -> HttpRequest.newBuilder(baseUri.resolve("/" + shorthands[popularity.next()])).GET().build();
+            case INDEX -> HttpRequest.newBuilder(baseUri.resolve("/")).GET().build();
+            case CREATE -> {
+                // Every create comes from a different address, so the per-IP penalty does not turn creates into errors
+                String clientIp = "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+                String link = "https://example.com/created/" + random.nextLong(Long.MAX_VALUE);
+                yield HttpRequest.newBuilder(baseUri.resolve("/links"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .header("X-Forwarded-For", clientIp)
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "link=" + URLEncoder.encode(link, StandardCharsets.UTF_8)))
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Discards the latencies recorded so far, used at the end of the warmup phase.
+     */
+    void reset() {
+        resetRequested = true;
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    LatencyRecorder recorder(Endpoint endpoint) {
+        return recorders.get(endpoint);
+    }
+}
@@ -0,0 +1,182 @@
+package gg.nya.tgirlclicker.loadtest;
+
+import gg.nya.tgirlclicker.TgirlclickerApplication;
+import gg.nya.tgirlclicker.service.LinkUrlNormalizer;
+import gg.nya.tgirlclicker.service.shorthand.ShorthandAllocator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End-to-end load test. Starts the application against an embedded PostgreSQL database, seeds links and drives a
+ * mixed workload of redirects, index views and link creations, then reports throughput and latency percentiles
+ * per endpoint. Run with {@code ./gradlew loadTest}, settings are described in {@link LoadTestConfig}.
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        // The shorthand index and click log live in a fresh directory, so no files from earlier runs are reused
+        Path workDir = Files.createTempDirectory("tgirlclicker-loadtest");
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             ConfigurableApplicationContext context = startApplication(postgres, workDir)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String[] shorthands = seedLinks(context, config.links());
+
+            WorkloadResult result = runWorkload(URI.create("http://127.0.0.1:" + port), shorthands, config);
+
+            String report = report(config, result);
+            System.out.println(report);
+            Files.createDirectories(config.report().toAbsolutePath().getParent());
+            Files.writeString(config.report(), toJson(config, result));
+            System.out.println("Report written to " + config.report().toAbsolutePath());
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres, Path workDir) {
+        SpringApplication application = new SpringApplication(TgirlclickerApplication.class);
+        application.setDefaultProperties(Map.ofEntries(
+                Map.entry("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres")),
+                Map.entry("spring.datasource.username", "postgres"),
+                Map.entry("spring.datasource.password", "postgres"),
+                Map.entry("spring.jpa.hibernate.ddl-auto", "validate"),
+                Map.entry("server.port", "0"),
+                Map.entry("management.server.port", "0"),
+                Map.entry("tgirlclicker.shorthand.key", "loadtest-shorthand-key"),
+                Map.entry("tgirlclicker.shorthand-index.path", workDir.resolve("shorthand-index.bin").toString()),
+                Map.entry("tgirlclicker.click-log.directory", workDir.resolve("clicks").toString()),
+                Map.entry("logging.level.gg.nya.tgirlclicker", "WARN")));
+        return application.run();
+    }
+
+    /**
+     * Inserts the links the workload resolves. They are dated two days back so they never count towards a penalty.
+     */
+    private static String[] seedLinks(ConfigurableApplicationContext context, int count) {
+        ShorthandAllocator allocator = context.getBean(ShorthandAllocator.class);
+        LinkUrlNormalizer normalizer = context.getBean(LinkUrlNormalizer.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        String[] shorthands = new String[count];
+        List<Object[]> rows = new ArrayList<>(count);
+        Timestamp createdDate = Timestamp.from(Instant.now().minus(Duration.ofDays(2)));
+        for (int i = 0; i < count; i++) {
+            shorthands[i] = allocator.allocate();
+            String link = "https://example.com/seeded/" + i;
+            rows.add(new Object[]{i % 20 == 0, "127.0.0.1", createdDate, link, shorthands[i], "loadtest",
+                    normalizer.hash(normalizer.normalize(link))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO links (alternative_mode, click_count, client_ip, created_date, link, "
+                + "shorthand, user_agent, link_hash) VALUES (?, 0, ?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE links");
+        System.out.printf("Seeded %d links%n", count);
+        return shorthands;
+    }
+
+    private static WorkloadResult runWorkload(URI baseUri, String[] shorthands, LoadTestConfig config)
+            throws InterruptedException {
+        if (config.rate() < 1) {
+            throw new IllegalArgumentException("loadtest.rate must be positive, got " + config.rate());
+        }
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ZipfSampler popularity = new ZipfSampler(shorthands.length, config.zipfExponent());
+
+        List<LoadClient> clients = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < config.concurrency(); i++) {
+            LoadClient client = new LoadClient(httpClient, baseUri, shorthands, popularity, config);
+            clients.add(client);
+            threads.add(Thread.ofPlatform().name("load-client-" + i).start(client));
+        }
+
+        System.out.printf("Warming up for %s with %d clients at %d req/s%n", config.warmup(), config.concurrency(),
+                config.rate());
+        Thread.sleep(config.warmup());
+        clients.forEach(LoadClient::reset);
+        long measureStart = System.nanoTime();
+        System.out.printf("Measuring for %s%n", config.duration());
+        Thread.sleep(config.duration());
+        clients.forEach(LoadClient::stop);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Requests in flight when the clients were stopped still complete and are counted, so the window includes them
+        double measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        Map<Endpoint, LatencyRecorder> results = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyRecorder merged = new LatencyRecorder();
+            clients.forEach(client -> client.recorder(endpoint).mergeInto(merged));
+            merged.sort();
+            results.put(endpoint, merged);
+        }
+        return new WorkloadResult(results, measuredSeconds);
+    }
+
+    private static String report(LoadTestConfig config, WorkloadResult result) {
+        double seconds = result.measuredSeconds();
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%nTarget rate: %d req/s, achieved rate: %.1f req/s over %.1f s%n", config.rate(),
+                result.totalRequests() / seconds, seconds));
+        report.append(String.format(Locale.ROOT, "%n%-22s %10s %10s %8s %10s %10s %10s%n", "Endpoint", "Requests",
+                "Req/s", "Errors", "p50 ms", "p99 ms", "p999 ms"));
+        result.endpoints().forEach((endpoint, recorder) -> report.append(String.format(Locale.ROOT,
+                "%-22s %10d %10.1f %8d %10.2f %10.2f %10.2f%n", endpoint.label, recorder.count(),
+                recorder.count() / seconds, recorder.errors(), recorder.percentileMillis(PERCENTILES[0]),
+                recorder.percentileMillis(PERCENTILES[1]), recorder.percentileMillis(PERCENTILES[2]))));
+        return report.toString();
+    }
+
+    private static String toJson(LoadTestConfig config, WorkloadResult result) {
+        double seconds = result.measuredSeconds();
+        List<String> endpoints = new ArrayList<>();
+        result.endpoints().forEach((endpoint, recorder) -> endpoints.add(String.format(Locale.ROOT,
+                "{\"endpoint\":\"%s\",\"requests\":%d,\"throughput\":%.1f,\"errors\":%d,%s}", endpoint.label,
+                recorder.count(), recorder.count() / seconds, recorder.errors(), percentilesJson(recorder))));
+        return String.format(Locale.ROOT,
+                "{\"links\":%d,\"concurrency\":%d,\"targetRate\":%d,\"achievedRate\":%.1f,"
+                        + "\"durationSeconds\":%.1f,\"zipfExponent\":%s,\"endpoints\":[%s]}%n",
+                config.links(), config.concurrency(), config.rate(), result.totalRequests() / seconds, seconds,
+                config.zipfExponent(), String.join(",", endpoints));
+    }
+
+    private static String percentilesJson(LatencyRecorder recorder) {
+        return String.format(Locale.ROOT, "\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f",
+                recorder.percentileMillis(PERCENTILES[0]), recorder.percentileMillis(PERCENTILES[1]),
+                recorder.percentileMillis(PERCENTILES[2]));
+    }
+
+    /**
+     * Latencies of the measured phase per endpoint.
+     * @param endpoints the merged latencies per endpoint
+     * @param measuredSeconds the time from the end of the warmup until the last request completed
+     */
+    private record WorkloadResult(Map<Endpoint, LatencyRecorder> endpoints, double measuredSeconds) {
+
+        long totalRequests() {
+            return endpoints.values().stream().mapToLong(LatencyRecorder::count).sum();
+        }
+    }
+}
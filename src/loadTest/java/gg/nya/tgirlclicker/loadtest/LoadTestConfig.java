@@ -0,0 +1,35 @@
+package gg.nya.tgirlclicker.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties.
+ * @param links number of links seeded before the run
+ * @param concurrency number of concurrent clients
+ * @param rate target number of requests per second across all clients
+ * @param warmup duration of the warmup phase, whose latencies are discarded
+ * @param duration duration of the measured phase
+ * @param zipfExponent skew of the shorthand popularity distribution, 0 is uniform
+ * @param redirectWeight relative share of {@code GET /{shorthand}} requests
+ * @param indexWeight relative share of {@code GET /} requests
+ * @param createWeight relative share of {@code POST /links} requests
+ * @param report file the JSON report is written to
+ */
+record LoadTestConfig(int links, int concurrency, int rate, Duration warmup, Duration duration, double zipfExponent,
+                      int redirectWeight, int indexWeight, int createWeight, Path report) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.links", 10_000),
+                Integer.getInteger("loadtest.concurrency", 64),
+                Integer.getInteger("loadtest.rate", 2000),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT30S")),
+                Double.parseDouble(System.getProperty("loadtest.zipf-exponent", "1.1")),
+                Integer.getInteger("loadtest.redirect-weight", 90),
+                Integer.getInteger("loadtest.index-weight", 8),
+                Integer.getInteger("loadtest.create-weight", 2),
+                Path.of(System.getProperty("loadtest.report", "build/results/loadtest/report.json")));
+    }
+}
@@ -0,0 +1,37 @@
+package gg.nya.tgirlclicker.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks from a Zipf distribution, so a few links receive most of the traffic as they do in production.
+ */
+class ZipfSampler {
+
+    private final double[] cumulativeProbabilities;
+
+    /**
+     * @param size number of ranks
+     * @param exponent skew of the distribution, 0 is uniform
+     */
+    ZipfSampler(int size, double exponent) {
+        cumulativeProbabilities = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulativeProbabilities[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulativeProbabilities[rank] /= sum;
+        }
+    }
+
+    /**
+     * @return a rank between 0 (most popular) and size - 1
+     */
+    int next() {
+        int index = Arrays.binarySearch(cumulativeProbabilities, ThreadLocalRandom.current().nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulativeProbabilities.length - 1);
+    }
+}
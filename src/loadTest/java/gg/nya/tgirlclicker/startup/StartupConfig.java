@@ -0,0 +1,44 @@
+package gg.nya.tgirlclicker.startup;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of a startup comparison, read from {@code startup.*} system properties.
+ * @param jar the executable Spring Boot jar, built with AOT processing
+ * @param nativeExecutable the native executable, compared only if it exists
+ * @param workDir directory the application is extracted to and started from
+ * @param runs number of starts per variant, the median of which is reported
+ * @param report file the JSON report is written to
+ */
+record StartupConfig(Path jar, Path nativeExecutable, Path workDir, int runs, Path report) {
+
+    static StartupConfig fromSystemProperties() {
+        return new StartupConfig(
+                Path.of(System.getProperty("startup.jar", "build/libs/tgirlclicker-1.0.0.jar")),
+                Path.of(System.getProperty("startup.native", "build/native/nativeCompile/tgirlclicker")),
+                Path.of(System.getProperty("startup.work-dir", "build/startup")),
+                Math.max(1, Integer.getInteger("startup.runs", 3)),
+                Path.of(System.getProperty("startup.report", "build/results/startup/report.json")));
+    }
+
+    /**
+     * @return the directory the jar is extracted to
+     */
+    Path applicationDir() {
+        return workDir.resolve("application");
+    }
+
+    /**
+     * @return the extracted application jar, which must be started from this exact path to use the CDS archive
+     */
+    Path applicationJar() {
+        return applicationDir().resolve("tgirlclicker.jar");
+    }
+
+    /**
+     * @return the CDS archive recorded by the training run
+     */
+    Path archive() {
+        return applicationDir().resolve("tgirlclicker.jsa");
+    }
+}
@@ -0,0 +1,296 @@
+package gg.nya.tgirlclicker.startup;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Builds the fast-startup variant of the application and compares its startup with the plain jar.
+ * The AOT-processed jar is extracted and started once in a training run that exits right after the context is
+ * refreshed, recording a CDS archive of all classes it loaded. In {@code report} mode, the plain jar, the extracted
+ * jar with AOT, the extracted jar with AOT and the CDS archive and, if it was built, the native executable are then
+ * each started several times against an embedded PostgreSQL database with the production profile. The time until
+ * the health endpoint answers, the heap used and the resident set size after startup are reported per variant.
+ * Run with {@code ./gradlew cdsArchive} or {@code ./gradlew startupReport}, settings are described in
+ * {@link StartupConfig}.
+ */
+public class StartupReport {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        StartupConfig config = StartupConfig.fromSystemProperties();
+        boolean archiveOnly = args.length > 0 && "archive".equals(args[0]);
+        String java = ProcessHandle.current().info().command()
+                .orElseThrow(() -> new IllegalStateException("Cannot determine the java executable"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            Map<String, String> environment = environment(postgres);
+            extract(java, config);
+            train(java, config, environment);
+            if (archiveOnly) {
+                System.out.println("CDS archive written to " + config.archive().toAbsolutePath());
+                return;
+            }
+
+            Map<String, List<String>> variants = new LinkedHashMap<>();
+            variants.put("jar", List.of(java, "-jar", config.jar().toAbsolutePath().toString()));
+            variants.put("aot", List.of(java, "-Dspring.aot.enabled=true", "-jar",
+                    config.applicationJar().toAbsolutePath().toString()));
+            variants.put("aot+cds", List.of(java, "-XX:SharedArchiveFile=" + config.archive().toAbsolutePath(),
+                    "-Dspring.aot.enabled=true", "-jar", config.applicationJar().toAbsolutePath().toString()));
+            if (Files.isExecutable(config.nativeExecutable())) {
+                variants.put("native", List.of(config.nativeExecutable().toAbsolutePath().toString()));
+            }
+
+            Map<String, StartupSample> results = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                List<StartupSample> samples = new ArrayList<>();
+                for (int run = 0; run < config.runs(); run++) {
+                    Path runDir = config.workDir().resolve("runs")
+                            .resolve(variant.getKey().replace('+', '-') + "-" + run);
+                    StartupSample sample = measure(variant.getValue(), runDir, environment);
+                    System.out.printf(Locale.ROOT, "%-8s run %d: %d ms%n", variant.getKey(), run,
+                            sample.startupMillis());
+                    samples.add(sample);
+                }
+                results.put(variant.getKey(), StartupSample.median(samples));
+            }
+
+            System.out.println(report(results));
+            Files.createDirectories(config.report().toAbsolutePath().getParent());
+            Files.writeString(config.report(), toJson(config, results));
+            System.out.println("Report written to " + config.report().toAbsolutePath());
+        }
+    }
+
+    /**
+     * Environment of the started application, using the production profile against the embedded database.
+     */
+    private static Map<String, String> environment(EmbeddedPostgres postgres) {
+        return Map.of(
+                "SPRING_PROFILES_ACTIVE", "prod",
+                "DATABASE_URL", postgres.getJdbcUrl("postgres", "postgres"),
+                "DB_USERNAME", "postgres",
+                "DB_PASSWORD", "postgres",
+                "SHORTHAND_KEY", "startup-shorthand-key");
+    }
+
+    /**
+     * Extracts the jar into a directory with the libraries next to the application jar, as required for CDS.
+     */
+    private static void extract(String java, StartupConfig config) throws IOException, InterruptedException {
+        deleteRecursively(config.applicationDir());
+        Files.createDirectories(config.workDir());
+        run(List.of(java, "-Djarmode=tools", "-jar", config.jar().toAbsolutePath().toString(), "extract",
+                        "--destination", config.applicationDir().toAbsolutePath().toString(),
+                        "--application-filename", config.applicationJar().getFileName().toString()),
+                config.workDir(), Map.of(), "extract");
+    }
+
+    /**
+     * Starts the extracted application once with AOT, exiting as soon as the context is refreshed, and records the
+     * classes loaded up to then in the CDS archive. No port is opened, so the training run can happen next to a
+     * running instance.
+     */
+    private static void train(String java, StartupConfig config, Map<String, String> environment)
+            throws IOException, InterruptedException {
+        Path trainingDir = config.workDir().resolve("training");
+        deleteRecursively(trainingDir);
+        run(List.of(java, "-XX:ArchiveClassesAtExit=" + config.archive().toAbsolutePath(),
+                        "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh", "-jar",
+                        config.applicationJar().toAbsolutePath().toString()),
+                trainingDir, environment, "training");
+        if (!Files.exists(config.archive())) {
+            throw new IllegalStateException("Training run did not write " + config.archive());
+        }
+    }
+
+    /**
+     * Runs a command to completion, failing if it does not exit successfully.
+     */
+    private static void run(List<String> command, Path directory, Map<String, String> environment, String name)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        Path log = directory.resolve(name + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(environment);
+        Process process = builder.start();
+        if (!process.waitFor(STARTUP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException(name + " did not finish within " + STARTUP_TIMEOUT + ", see " + log);
+        }
+        if (process.exitValue() != 0) {
+            throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+        }
+    }
+
+    /**
+     * Starts the application, waits until its health endpoint answers and samples its memory, then stops it.
+     */
+    private static StartupSample measure(List<String> command, Path runDir, Map<String, String> environment)
+            throws IOException, InterruptedException {
+        deleteRecursively(runDir);
+        Files.createDirectories(runDir);
+        int managementPort = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + freePort());
+        arguments.add("--management.server.port=" + managementPort);
+
+        Path log = runDir.resolve("application.log");
+        ProcessBuilder builder = new ProcessBuilder(arguments)
+                .directory(runDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(environment);
+
+        URI health = URI.create("http://127.0.0.1:" + managementPort + "/actuator/health");
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (!isUp(health)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > STARTUP_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException("Application did not start within " + STARTUP_TIMEOUT
+                            + ", see " + log);
+                }
+                Thread.sleep(10);
+            }
+            long startupMillis = (System.nanoTime() - start) / 1_000_000;
+            long heapBytes = heapUsed(URI.create("http://127.0.0.1:" + managementPort + "/actuator/prometheus"));
+            return new StartupSample(startupMillis, heapBytes, residentSetSize(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static boolean isUp(URI health) throws InterruptedException {
+        try {
+            HttpResponse<Void> response = HTTP_CLIENT.send(HttpRequest.newBuilder(health).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sums the used bytes of all heap memory pools as exposed by Micrometer.
+     */
+    private static long heapUsed(URI prometheus) throws IOException, InterruptedException {
+        String metrics = HTTP_CLIENT.send(HttpRequest.newBuilder(prometheus).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        return metrics.lines()
+                .filter(line -> line.startsWith("jvm_memory_used_bytes{") && line.contains("area=\"heap\""))
+                .mapToLong(line -> (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+                .sum();
+    }
+
+    /**
+     * Reads the resident set size of a process, or -1 where {@code /proc} is not available.
+     */
+    private static long residentSetSize(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(kilobytes -> Long.parseLong(kilobytes) * 1024)
+                    .findFirst()
+                    .orElse(-1);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String report(Map<String, StartupSample> results) {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%n%-10s %12s %10s %10s%n",
+                "Variant", "Startup ms", "Heap MiB", "RSS MiB"));
+        results.forEach((variant, sample) -> report.append(String.format(Locale.ROOT, "%-10s %12d %10.1f %10.1f%n",
+                variant, sample.startupMillis(), mebibytes(sample.heapBytes()), mebibytes(sample.rssBytes()))));
+        return report.toString();
+    }
+
+    private static String toJson(StartupConfig config, Map<String, StartupSample> results) {
+        List<String> variants = new ArrayList<>();
+        results.forEach((variant, sample) -> variants.add(String.format(Locale.ROOT,
+                "{\"variant\":\"%s\",\"startupMs\":%d,\"heapBytes\":%d,\"rssBytes\":%d}", variant,
+                sample.startupMillis(), sample.heapBytes(), sample.rssBytes())));
+        return String.format(Locale.ROOT, "{\"runs\":%d,\"variants\":[%s]}%n", config.runs(),
+                String.join(",", variants));
+    }
+
+    private static double mebibytes(long bytes) {
+        return bytes < 0 ? -1 : bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Startup time and memory of a single start of the application.
+     * @param startupMillis time from launching the process until the health endpoint answers
+     * @param heapBytes heap used right after startup
+     * @param rssBytes resident set size right after startup, -1 if unknown
+     */
+    record StartupSample(long startupMillis, long heapBytes, long rssBytes) {
+
+        /**
+         * Takes the median of each value separately.
+         */
+        static StartupSample median(List<StartupSample> samples) {
+            return new StartupSample(
+                    median(samples.stream().mapToLong(StartupSample::startupMillis).toArray()),
+                    median(samples.stream().mapToLong(StartupSample::heapBytes).toArray()),
+                    median(samples.stream().mapToLong(StartupSample::rssBytes).toArray()));
+        }
+
+        private static long median(long[] values) {
+            Arrays.sort(values);
+            return values[values.length / 2];
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package gg.nya.tgirlclicker;
 
+import gg.nya.tgirlclicker.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableCaching
+@EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class TgirlclickerApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,66 @@
+package gg.nya.tgirlclicker.config;
+
+import gg.nya.tgirlclicker.repository.DatabaseBulkhead;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Places a {@link DatabaseBulkhead} in front of the primary data source, so every connection taken from the pool
+ * holds a permit, whether it is used by a repository or by a {@code JdbcTemplate}. The bulkhead is sized for the
+ * primary pool and wraps it before the read replica routing does, so reads served by replicas take no permit.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tgirlclicker.db-bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseBulkheadConfig {
+
+    /**
+     * Wraps the data source in the bulkhead. Should not allow more connections than the pool has, so callers wait in
+     * the bulkhead with a short timeout rather than in the pool. The limit defaults to the maximum pool size.
+     * @param environment the environment to read the bulkhead settings from
+     * @return the post processor wrapping the data source
+     */
+    @Bean
+    public static DatabaseBulkheadPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        int maxConcurrentCalls = environment.getProperty("tgirlclicker.db-bulkhead.max-concurrent-calls",
+                Integer.class, environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class,
+                        10));
+        Duration acquireTimeout = environment.getProperty("tgirlclicker.db-bulkhead.acquire-timeout", Duration.class,
+                Duration.ofMillis(200));
+        return new DatabaseBulkheadPostProcessor(maxConcurrentCalls, acquireTimeout);
+    }
+
+    /**
+     * Post processor wrapping the primary data source. Ordered, so it runs before the unordered post processors,
+     * which includes the one of {@link ReadReplicaConfig}. The declared type of the bean method must expose the order,
+     * as post processors are sorted before they are instantiated.
+     */
+    static class DatabaseBulkheadPostProcessor implements BeanPostProcessor, Ordered {
+        private final int maxConcurrentCalls;
+        private final Duration acquireTimeout;
+
+        DatabaseBulkheadPostProcessor(int maxConcurrentCalls, Duration acquireTimeout) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                return new DatabaseBulkhead(dataSource, maxConcurrentCalls, acquireTimeout);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
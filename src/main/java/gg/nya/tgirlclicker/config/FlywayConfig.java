@@ -0,0 +1,36 @@
+package gg.nya.tgirlclicker.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Decides whether the schema migrations run on startup.
+ * The CDS training run on deployment starts the new version next to the running one, which must not have its schema
+ * migrated underneath it. The property is checked at runtime rather than through a condition, because conditions
+ * are fixed at build time in AOT-processed builds.
+ */
+@Configuration
+public class FlywayConfig {
+    private static final Logger log = LoggerFactory.getLogger(FlywayConfig.class);
+
+    /**
+     * Migrates the schema unless disabled.
+     * @param migrateOnStartup whether to run pending migrations on startup
+     * @return the migration strategy
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${tgirlclicker.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            } else {
+                log.info("flywayMigrationStrategy, schema migrations are disabled on this start");
+            }
+        };
+    }
+}
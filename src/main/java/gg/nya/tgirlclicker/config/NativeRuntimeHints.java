@@ -0,0 +1,26 @@
+package gg.nya.tgirlclicker.config;
+
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import gg.nya.tgirlclicker.service.trending.TrendingLink;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+/**
+ * Hints for the native image that cannot be derived from the bean definitions.
+ * Covers the JDK proxies created at runtime by {@link ReadReplicaConfig} and the database bulkhead, the Thymeleaf
+ * templates, which are also rendered outside of Spring MVC by the redirect fast path, and model attributes whose
+ * accessors are only called reflectively from templates.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(LinkRepository.class));
+        hints.proxies().registerJdkProxy(ConnectionProxy.class);
+        hints.resources().registerPattern("templates/*.html");
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), TrendingLink.class);
+    }
+}
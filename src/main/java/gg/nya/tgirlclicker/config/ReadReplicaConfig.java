@@ -0,0 +1,108 @@
+package gg.nya.tgirlclicker.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import gg.nya.tgirlclicker.repository.ReplicaReadInterceptor;
+import gg.nya.tgirlclicker.repository.ReplicaRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends replica reads to read replicas if {@code tgirlclicker.read-replicas.urls} lists any.
+ * The primary data source is wrapped in a {@link ReplicaRoutingDataSource} and the link repository in a
+ * {@link ReplicaReadInterceptor}. The primary data source may already be wrapped by the database bulkhead, which
+ * then only guards the primary pool. The property is checked at runtime rather than through a condition, because
+ * conditions are fixed at build time in AOT-processed builds.
+ */
+@Configuration
+public class ReadReplicaConfig {
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    /**
+     * The interceptor routing the marked link repository queries. Only applied if read replicas are configured.
+     * @return the interceptor
+     */
+    @Bean
+    public ReplicaReadInterceptor replicaReadInterceptor() {
+        return new ReplicaReadInterceptor();
+    }
+
+    /**
+     * Wraps the primary data source and the link repository if read replicas are configured.
+     * Replica pools share the driver settings of the primary pool and only ever hand out read-only connections.
+     * @param environment the environment to read the replica settings from
+     * @param interceptor provider of the interceptor, resolved lazily to keep this post processor static
+     * @return the post processor wrapping the data source and the repository
+     */
+    @Bean
+    public static BeanPostProcessor readReplicaPostProcessor(Environment environment,
+                                                             ObjectProvider<ReplicaReadInterceptor> interceptor) {
+        String[] urls = StringUtils.tokenizeToStringArray(
+                environment.getProperty("tgirlclicker.read-replicas.urls", ""), ",");
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (urls.length == 0) {
+                    return bean;
+                }
+                if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                    return routingDataSource(dataSource, urls, environment);
+                }
+                if (bean instanceof LinkRepository) {
+                    ProxyFactory proxyFactory = new ProxyFactory();
+                    proxyFactory.setTarget(bean);
+                    proxyFactory.setInterfaces(LinkRepository.class);
+                    proxyFactory.addAdvice(interceptor.getObject());
+                    return proxyFactory.getProxy();
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static ReplicaRoutingDataSource routingDataSource(DataSource primary, String[] urls,
+                                                              Environment environment) {
+        String username = environment.getProperty("tgirlclicker.read-replicas.username",
+                environment.getProperty("spring.datasource.username", ""));
+        String password = environment.getProperty("tgirlclicker.read-replicas.password",
+                environment.getProperty("spring.datasource.password", ""));
+        int maximumPoolSize = environment.getProperty("tgirlclicker.read-replicas.maximum-pool-size", Integer.class,
+                10);
+        Duration maxLag = environment.getProperty("tgirlclicker.read-replicas.max-lag", Duration.class,
+                Duration.ofSeconds(1));
+
+        List<DataSource> replicas = new ArrayList<>(urls.length);
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(primary, HikariDataSource.class);
+            if (hikari != null) {
+                replica.setDriverClassName(hikari.getDriverClassName());
+                replica.setConnectionTimeout(hikari.getConnectionTimeout());
+                replica.setDataSourceProperties(hikari.getDataSourceProperties());
+            }
+            replicas.add(replica);
+        }
+        log.info("routingDataSource, routing replica reads to {} read replica(s), max lag: {}", replicas.size(),
+                maxLag);
+        return new ReplicaRoutingDataSource(primary, replicas, maxLag);
+    }
+}
@@ -0,0 +1,57 @@
+package gg.nya.tgirlclicker.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Startup check that reports indexes expected by the application but missing from the database.
+ * The indexes are created by the schema migrations, so a missing index usually means a migration was skipped or
+ * an index was dropped manually.
+ */
+@Component
+public class SchemaIndexCheck {
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+    static final List<String> EXPECTED_INDEXES = List.of(
+            "uk_links_shorthand",
+            "idx_links_client_ip_created_date",
+            "idx_links_link_hash_alternative_mode"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SchemaIndexCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Checks the indexes of the links table once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndexes() {
+        try {
+            Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND tablename = 'links'",
+                    String.class));
+            List<String> missing = EXPECTED_INDEXES.stream().filter(index -> !existing.contains(index)).toList();
+
+            if (missing.isEmpty()) {
+                log.info("checkIndexes, all {} expected indexes on links are present", EXPECTED_INDEXES.size());
+            } else {
+                log.warn("checkIndexes, missing indexes on links: {}", missing);
+            }
+        } catch (RuntimeException e) {
+            log.warn("checkIndexes, could not check indexes on links", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package gg.nya.tgirlclicker.config;
+
+import gg.nya.tgirlclicker.session.CookieFlashMapManager;
+import gg.nya.tgirlclicker.session.TokenSigner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.FlashMapManager;
+
+/**
+ * Configuration for the stateless session mode.
+ * Visitor state is kept in a signed cookie by {@link gg.nya.tgirlclicker.session.CookieUserSession}, and flash
+ * attributes are stored in a signed cookie instead of the HTTP session, so no server-side session is ever created.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tgirlclicker.session.mode", havingValue = "stateless")
+public class StatelessSessionConfig {
+
+    /**
+     * Signer for the visitor and flash cookies.
+     * @param signingKey the secret signing key
+     * @return the token signer
+     */
+    @Bean
+    public TokenSigner tokenSigner(@Value("${tgirlclicker.session.signing-key}") String signingKey) {
+        return new TokenSigner(signingKey);
+    }
+
+    /**
+     * Replaces the session-based FlashMapManager registered by Spring MVC with the cookie-based one.
+     * The bean is registered by the MVC auto-configuration and cannot be overridden by definition, so it is
+     * swapped out after initialization instead.
+     * @param signingKey the secret signing key
+     * @return the post processor replacing the FlashMapManager
+     */
+    @Bean
+    public static BeanPostProcessor cookieFlashMapManagerPostProcessor(
+            @Value("${tgirlclicker.session.signing-key}") String signingKey) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DispatcherServlet.FLASH_MAP_MANAGER_BEAN_NAME.equals(beanName) && bean instanceof FlashMapManager) {
+                    return new CookieFlashMapManager(new TokenSigner(signingKey));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,13 +1,28 @@
 package gg.nya.tgirlclicker.config;
 
+import gg.nya.tgirlclicker.filter.AdaptiveConcurrencyLimiter;
+import gg.nya.tgirlclicker.filter.RedirectFastPathFilter;
+import gg.nya.tgirlclicker.filter.RedirectPageTemplate;
+import gg.nya.tgirlclicker.filter.RequestGuardFilter;
 import gg.nya.tgirlclicker.interceptor.RequestLoggingInterceptor;
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import gg.nya.tgirlclicker.service.LinkService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.thymeleaf.ITemplateEngine;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 /**
- * Web configuration class to register the request logging interceptor.
+ * Web configuration class to register the request logging interceptor, the request guard filter and the redirect
+ * fast path filter.
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -23,4 +38,68 @@ public class WebConfig implements WebMvcConfigurer {
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(requestLoggingInterceptor);
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the request guard filter, rejecting malformed shorthands and shedding load on the redirect and create
+     * endpoints.
+     * @param loadSheddingEnabled whether to limit the concurrency of redirects and link creations
+     * @param initialLimit the initial concurrency limit of both endpoints
+     * @param minLimit the lowest concurrency limit of both endpoints
+     * @param maxLimit the highest concurrency limit of both endpoints
+     * @param redirectLatencyThreshold redirects slower than this shrink the redirect limit
+     * @param createLatencyThreshold link creations slower than this shrink the create limit
+     * @return the request guard filter
+     */
+    @Bean
+    public RequestGuardFilter requestGuardFilter(
+            @Value("${tgirlclicker.load-shedding.enabled:true}") boolean loadSheddingEnabled,
+            @Value("${tgirlclicker.load-shedding.initial-limit:100}") int initialLimit,
+            @Value("${tgirlclicker.load-shedding.min-limit:10}") int minLimit,
+            @Value("${tgirlclicker.load-shedding.max-limit:1000}") int maxLimit,
+            @Value("${tgirlclicker.load-shedding.redirect-latency-threshold:PT0.05S}")
+            Duration redirectLatencyThreshold,
+            @Value("${tgirlclicker.load-shedding.create-latency-threshold:PT0.5S}") Duration createLatencyThreshold) {
+        if (!loadSheddingEnabled) {
+            return new RequestGuardFilter(null, null);
+        }
+        return new RequestGuardFilter(
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, redirectLatencyThreshold),
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, createLatencyThreshold));
+    }
+
+    /**
+     * Registers the request guard filter ahead of all other filters, so rejected requests cost as little as possible.
+     * @param requestGuardFilter the request guard filter
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<RequestGuardFilter> requestGuardFilterRegistration(
+            RequestGuardFilter requestGuardFilter) {
+        FilterRegistrationBean<RequestGuardFilter> registration = new FilterRegistrationBean<>(requestGuardFilter);
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Registers the redirect fast path filter right after the request guard filter, so shorthand redirects are
+     * answered without going through the DispatcherServlet.
+     * @param linkService the link service used to resolve shorthands
+     * @param templateEngine the template engine used to pre-render the redirect page
+     * @param linkMetrics the metrics to record redirect latencies with
+     * @param gzipEnabled whether to serve the pre-gzipped variant of the redirect page
+     * @return the filter registration
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tgirlclicker.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathFilter(
+            LinkService linkService, ITemplateEngine templateEngine, LinkMetrics linkMetrics,
+            @Value("${tgirlclicker.fast-path.redirect-page-gzip:true}") boolean gzipEnabled) {
+        RedirectPageTemplate redirectPageTemplate = new RedirectPageTemplate(templateEngine, gzipEnabled);
+        FilterRegistrationBean<RedirectFastPathFilter> registration =
+                new FilterRegistrationBean<>(new RedirectFastPathFilter(linkService, redirectPageTemplate, linkMetrics));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
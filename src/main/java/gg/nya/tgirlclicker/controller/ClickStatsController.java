@@ -0,0 +1,71 @@
+package gg.nya.tgirlclicker.controller;
+
+import gg.nya.tgirlclicker.repository.ClickRollupRepository;
+import gg.nya.tgirlclicker.repository.HourlyClicks;
+import gg.nya.tgirlclicker.service.LinkService;
+import gg.nya.tgirlclicker.service.shorthand.ShorthandAllocator;
+import gg.nya.tgirlclicker.service.trending.TrendingLink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * JSON endpoints serving click statistics of links.
+ */
+@RestController
+public class ClickStatsController {
+    private static final Logger log = LoggerFactory.getLogger(ClickStatsController.class);
+
+    private static final int MAX_HOURS = 31 * 24;
+    private static final int MAX_TRENDING = 20;
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final LinkService linkService;
+
+    @Autowired
+    public ClickStatsController(ClickRollupRepository clickRollupRepository, LinkService linkService) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.linkService = linkService;
+    }
+
+    /**
+     * Returns the links with the most clicks recently on this instance.
+     * @param limit the maximum number of links to return, at most 20
+     * @return the trending links, most popular first
+     */
+    @GetMapping("/links/trending")
+    public List<TrendingLink> trending(@RequestParam(defaultValue = "10") int limit) {
+        log.debug("trending, request for up to {} trending links", limit);
+        return linkService.getTrendingLinks(Math.max(1, Math.min(limit, MAX_TRENDING)));
+    }
+
+    /**
+     * Returns the hourly clicks of a link, as compacted from the click event logs.
+     * Clicks of the most recent minutes may not be included yet.
+     * @param shorthand the shorthand of the link
+     * @param hours the number of past hours to return, at most 31 days
+     * @return the hourly clicks, oldest first, hours without clicks are omitted
+     */
+    @GetMapping("/links/{shorthand}/clicks")
+    public ResponseEntity<List<HourlyClicks>> hourlyClicks(@PathVariable String shorthand,
+                                                           @RequestParam(defaultValue = "24") int hours) {
+        log.debug("hourlyClicks, request for hourly clicks of shorthand: {}, hours: {}", shorthand, hours);
+
+        if (!ShorthandAllocator.isWellFormed(shorthand)) {
+            return ResponseEntity.notFound().build();
+        }
+        int clampedHours = Math.max(1, Math.min(hours, MAX_HOURS));
+        Instant since = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(Duration.ofHours(clampedHours - 1));
+        return ResponseEntity.ok(clickRollupRepository.findHourlyClicks(shorthand, since));
+    }
+}
@@ -0,0 +1,122 @@
+package gg.nya.tgirlclicker.controller;
+
+import gg.nya.tgirlclicker.controller.model.BulkCreateLinksDto;
+import gg.nya.tgirlclicker.controller.model.BulkCreatedLinksDto;
+import gg.nya.tgirlclicker.controller.model.CreateLinkDto;
+import gg.nya.tgirlclicker.controller.model.CreatedLinkDto;
+import gg.nya.tgirlclicker.repository.Link;
+import gg.nya.tgirlclicker.service.LinkService;
+import gg.nya.tgirlclicker.service.model.BulkCreationResult;
+import gg.nya.tgirlclicker.session.UserSession;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * JSON endpoints for link creation.
+ * Answer with the created links in a single round trip and never redirect or use flash attributes. The visitor
+ * session is only consulted if alternative mode is requested.
+ */
+@RestController
+public class LinkApiController {
+    private static final Logger log = LoggerFactory.getLogger(LinkApiController.class);
+
+    private final LinkService linkService;
+    private final UserSession userSession;
+
+    @Value("${spring.profiles.active:default}")
+    private String activeProfile;
+
+    @Autowired
+    public LinkApiController(LinkService linkService, UserSession userSession) {
+        this.linkService = linkService;
+        this.userSession = userSession;
+    }
+
+    /**
+     * Creates a new link, or returns the existing link with the same destination.
+     * @param createLinkDto the DTO containing the link information to be created
+     * @param request the HTTP request to extract server information
+     * @return the created link, or 429 with a Retry-After header if the client cannot create a link at this time
+     */
+    @PostMapping(value = "/links", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CreatedLinkDto> createLink(@Valid @RequestBody CreateLinkDto createLinkDto,
+                                                     HttpServletRequest request) {
+        log.debug("createLink, request to create link: {}", createLinkDto);
+
+        boolean alternativeMode = isAlternativeModeAuthorized(createLinkDto.getAlternativeMode());
+        String clientIp = MDC.get("clientIp");
+        Optional<Link> createdLink = linkService.createOrFindLink(createLinkDto.getLink(), alternativeMode,
+                clientIp, MDC.get("userAgent"));
+        if (createdLink.isEmpty()) {
+            int penaltyMinutes = linkService.getRemainingPenaltyMinutes(clientIp);
+            log.warn("createLink, could not create link, client can retry in {} minutes", penaltyMinutes);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, penaltyMinutes) * 60))
+                    .build();
+        }
+
+        log.debug("createLink, link created or found: {}", createdLink.get());
+        return ResponseEntity.ok(toDto(createLinkDto.getLink(), createdLink.get(), request));
+    }
+
+    /**
+     * Creates new links, or returns the existing links with the same destinations, for many destinations at once.
+     * Duplicate destinations are only created once. Destinations beyond the client's penalty are returned as
+     * rejected instead of failing the whole request.
+     * @param bulkCreateLinksDto the DTO containing the links to be created
+     * @param request the HTTP request to extract server information
+     * @return the created links and the rejected destinations
+     */
+    @PostMapping(value = "/links/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkCreatedLinksDto createLinks(@Valid @RequestBody BulkCreateLinksDto bulkCreateLinksDto,
+                                           HttpServletRequest request) {
+        log.debug("createLinks, request to create links: {}", bulkCreateLinksDto);
+
+        boolean alternativeMode = isAlternativeModeAuthorized(bulkCreateLinksDto.getAlternativeMode());
+        BulkCreationResult result = linkService.createOrFindLinks(bulkCreateLinksDto.getLinks(), alternativeMode,
+                MDC.get("clientIp"), MDC.get("userAgent"));
+
+        List<CreatedLinkDto> links = new ArrayList<>(result.links().size());
+        result.links().forEach((link, createdLink) -> links.add(toDto(link, createdLink, request)));
+        return new BulkCreatedLinksDto(links, result.rejected(), result.penaltyMinutes());
+    }
+
+    /**
+     * Checks whether the requested alternative mode may be used, without touching the session if it is not
+     * requested.
+     * @param uuid the UUID sent with the request, or null
+     * @return true if the links should be created in alternative mode
+     */
+    private boolean isAlternativeModeAuthorized(UUID uuid) {
+        if (uuid == null) {
+            return false;
+        }
+        if (!userSession.isAlternativeModeAuthorized(uuid)) {
+            log.warn("isAlternativeModeAuthorized, alternative mode requested but not authorized, ignoring it.");
+            return false;
+        }
+        return true;
+    }
+
+    private CreatedLinkDto toDto(String link, Link createdLink, HttpServletRequest request) {
+        return new CreatedLinkDto(link, createdLink.getShorthand(),
+                PageController.buildLinkUrl(request, createdLink.getShorthand(), activeProfile));
+    }
+}
@@ -3,6 +3,7 @@ package gg.nya.tgirlclicker.controller;
 import gg.nya.tgirlclicker.controller.model.CreateLinkDto;
 import gg.nya.tgirlclicker.repository.Link;
 import gg.nya.tgirlclicker.service.LinkService;
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
 import gg.nya.tgirlclicker.session.UserSession;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -31,6 +32,8 @@ import java.util.Optional;
 public class PageController {
     private static final Logger log = LoggerFactory.getLogger(PageController.class);
 
+    private static final int TRENDING_WIDGET_SIZE = 5;
+
     private final LinkService linkService;
     private final UserSession userSession;
     
@@ -51,10 +54,11 @@ public class PageController {
      */
     @GetMapping("/")
     public String index(Model model) {
-        log.info("index, request to serve main page");
+        log.debug("index, request to serve main page");
 
-        int totalClickCount = linkService.getTotalClickCount();
+        long totalClickCount = linkService.getTotalClickCount();
         model.addAttribute("totalClickCount", totalClickCount);
+        model.addAttribute("trendingLinks", linkService.getTrendingLinks(TRENDING_WIDGET_SIZE));
         model.addAttribute("UUID1", userSession.getAuthorizeUUIDs().get(0));
         model.addAttribute("UUID2", userSession.getAuthorizeUUIDs().get(1));
         model.addAttribute("userSecretMode", userSession.isSecretMode());
@@ -80,7 +84,7 @@ public class PageController {
     @PostMapping("/links")
     public String createLink(@Valid @ModelAttribute CreateLinkDto createLinkDto, BindingResult bindingResult,
                              RedirectAttributes redirectAttributes, HttpServletRequest request) {
-        log.info("createLink, request to create link: {}", createLinkDto);
+        log.debug("createLink, request to create link: {}", createLinkDto);
 
         if (bindingResult.hasErrors()) {
             log.warn("createLink, validation errors: {}", bindingResult.getAllErrors());
@@ -109,7 +113,7 @@ public class PageController {
                 MDC.get("clientIp"), MDC.get("userAgent"));
 
         if(createdLink.isPresent()) {
-            String baseUrl = buildLinkUrl(request, createdLink.get().getShorthand());
+            String baseUrl = buildLinkUrl(request, createdLink.get().getShorthand(), activeProfile);
             redirectAttributes.addFlashAttribute("createdLink", baseUrl);
             log.debug("createLink, link object created successfully: {}; Returning {}", createdLink, baseUrl);
         }
@@ -128,7 +132,7 @@ public class PageController {
      */
     @PostMapping("/auth")
     public String auth(@RequestBody String UUID) {
-        log.info("auth, user authorization request with UUID: {}", UUID);
+        log.debug("auth, user authorization request with UUID: {}", UUID);
         userSession.authorize(java.util.UUID.fromString(UUID));
 
         return "redirect:/";
@@ -143,27 +147,28 @@ public class PageController {
      */
     @GetMapping("/{shorthand:[^.]*}")
     public String redirectToLink(@PathVariable String shorthand, Model model) {
-        log.info("redirectToLink, request to resolve shorthand: {}", shorthand);
+        log.debug("redirectToLink, request to resolve shorthand: {}", shorthand);
 
-        Optional<Link> resolvedLink = linkService.retrieveAndIncrementClickCount(shorthand);
+        Optional<ResolvedLink> resolvedLink = linkService.retrieveAndIncrementClickCount(shorthand,
+                MDC.get("clientIp"), MDC.get("userAgent"));
         if(resolvedLink.isEmpty()) {
-            log.warn("redirectToLink, no link found for shorthand: {}", shorthand);
+            log.debug("redirectToLink, no link found for shorthand: {}", shorthand);
             return "redirect:/";
         }
 
         log.debug("redirectToLink, resolved link: {} -> {}",
-                resolvedLink.get().getShorthand(),
-                resolvedLink.get().getLink());
+                resolvedLink.get().shorthand(),
+                resolvedLink.get().link());
 
-        if(resolvedLink.get().isAlternativeMode())
+        if(resolvedLink.get().alternativeMode())
         {
             log.debug("redirectToLink, alternative mode enabled for link resolution for shorthand: {}", shorthand);
-            model.addAttribute("link", resolvedLink.get().getLink());
+            model.addAttribute("link", resolvedLink.get().link());
             return "redirect";
         }
         else {
             log.debug("redirectToLink, redirecting directly for shorthand: {}", shorthand);
-            return "redirect:" + resolvedLink.get().getLink();
+            return "redirect:" + resolvedLink.get().link();
         }
     }
 
@@ -174,7 +179,7 @@ public class PageController {
      */
     @GetMapping("/about")
     public String about(Model model) {
-        log.info("about, request to serve about page");
+        log.debug("about, request to serve about page");
 
         model.addAttribute("UUID3", userSession.getAuthorizeUUIDs().get(2));
         log.debug("about, about page was served");
@@ -188,9 +193,10 @@ public class PageController {
      * 
      * @param request The HTTP request to extract server information.
      * @param shorthand The shorthand identifier for the link.
+     * @param activeProfile The active Spring profile.
      * @return The complete URL for the shortened link.
      */
-    private String buildLinkUrl(HttpServletRequest request, String shorthand) {
+    static String buildLinkUrl(HttpServletRequest request, String shorthand, String activeProfile) {
         if ("prod".equals(activeProfile)) {
             return "https://" + request.getServerName() + "/" + shorthand;
         } else {
@@ -0,0 +1,61 @@
+package gg.nya.tgirlclicker.controller.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for creating many links at once.
+ */
+public class BulkCreateLinksDto {
+
+    /**
+     * The maximum number of links that can be created in one request.
+     */
+    public static final int MAX_LINKS = 100;
+
+    /**
+     * The links to which the users should be redirected.
+     */
+    @NotEmpty(message = "Links cannot be empty")
+    @Size(max = MAX_LINKS, message = "At most " + MAX_LINKS + " links can be created at once")
+    private List<@NotBlank(message = "Link cannot be blank")
+            @Size(max = CreateLinkDto.MAX_LINK_LENGTH,
+                    message = "Link must be at most " + CreateLinkDto.MAX_LINK_LENGTH + " characters long")
+            @Pattern(regexp = "^https?://.*", message = "Link must be a valid URL starting with http:// or https://")
+            String> links;
+
+    /**
+     * If not null, this UUID is validated against @{@link gg.nya.tgirlclicker.session.UserSession}
+     * to determine whether the link redirects should be delivered in the alternative mode.
+     */
+    private UUID alternativeMode;
+
+    public List<String> getLinks() {
+        return links;
+    }
+
+    public void setLinks(List<String> links) {
+        this.links = links;
+    }
+
+    public UUID getAlternativeMode() {
+        return alternativeMode;
+    }
+
+    public void setAlternativeMode(UUID alternativeMode) {
+        this.alternativeMode = alternativeMode;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkCreateLinksDto{" +
+                "links=" + (links == null ? 0 : links.size()) +
+                ", alternativeMode=" + alternativeMode +
+                '}';
+    }
+}
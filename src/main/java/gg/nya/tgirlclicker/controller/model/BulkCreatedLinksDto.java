@@ -0,0 +1,13 @@
+package gg.nya.tgirlclicker.controller.model;
+
+import java.util.List;
+
+/**
+ * Response of the bulk link creation endpoint.
+ *
+ * @param links             the created or existing links, in submission order
+ * @param rejected          the submitted destinations for which no link could be created at this time
+ * @param retryAfterMinutes the duration in minutes until the next link can be created, 0 if nothing was rejected
+ */
+public record BulkCreatedLinksDto(List<CreatedLinkDto> links, List<String> rejected, int retryAfterMinutes) {
+}
@@ -3,6 +3,7 @@ package gg.nya.tgirlclicker.controller.model;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
 import java.util.UUID;
 
@@ -11,11 +12,17 @@ import java.util.UUID;
  */
 public class CreateLinkDto {
 
+    /**
+     * The maximum length of a link, the size of the {@code link} column.
+     */
+    public static final int MAX_LINK_LENGTH = 255;
+
     /**
      * The link to which the user should be redirected.
      */
     @NotNull(message = "Link cannot be null")
     @NotBlank(message = "Link cannot be blank")
+    @Size(max = MAX_LINK_LENGTH, message = "Link must be at most " + MAX_LINK_LENGTH + " characters long")
     @Pattern(regexp = "^https?://.*", message = "Link must be a valid URL starting with http:// or https://")
     private String link;
 
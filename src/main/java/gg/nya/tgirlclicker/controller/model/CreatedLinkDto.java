@@ -0,0 +1,11 @@
+package gg.nya.tgirlclicker.controller.model;
+
+/**
+ * A created or existing link, as returned by the JSON link creation endpoints.
+ *
+ * @param link      the destination as submitted
+ * @param shorthand the shorthand via which the link is accessed
+ * @param url       the full short URL
+ */
+public record CreatedLinkDto(String link, String shorthand, String url) {
+}
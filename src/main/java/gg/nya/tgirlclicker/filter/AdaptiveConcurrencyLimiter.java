@@ -0,0 +1,116 @@
+package gg.nya.tgirlclicker.filter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limiter whose limit adapts to the observed latency (additive increase, multiplicative decrease).
+ * Latency is smoothed with an exponentially weighted moving average, so a single slow request does not count as
+ * a latency spike. While the smoothed latency is above the threshold, or requests fail with an overload response,
+ * the limit shrinks by the backoff ratio, at most once per window of one latency threshold. A burst of slow
+ * responses in flight at the same time therefore shrinks the limit once rather than once per response. Every fast
+ * request that completes while at least half of the limit is in use grows it by one. Under normal load the limit
+ * therefore stays well above the actual concurrency, while a sustained latency spike quickly brings it down, so
+ * excess requests are rejected instead of queueing up behind the database.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    // Weight of each sample in the smoothed latency, as a power of two: 1/8
+    private static final int SMOOTHING_SHIFT = 3;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong smoothedLatencyNanos = new AtomicLong(-1);
+    private final AtomicLong lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits " + minLimit + " <= " + initialLimit
+                    + " <= " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = new AtomicInteger(initialLimit);
+        this.lastDecreaseNanos = new AtomicLong(System.nanoTime() - latencyThresholdNanos);
+    }
+
+    /**
+     * Tries to start a request.
+     * @return true if the request may proceed and {@link #release(long, boolean)} must be called once it completes,
+     * false if it must be rejected
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.get()) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Completes a request started by {@link #tryAcquire()} and adjusts the limit.
+     * @param latencyNanos the latency of the request in nanoseconds
+     * @param overloaded whether the request failed because a downstream resource was overloaded
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        int concurrency = inFlight.getAndDecrement();
+        long smoothedLatency = smoothedLatencyNanos.accumulateAndGet(latencyNanos,
+                (current, sample) -> current < 0 ? sample : current + ((sample - current) >> SMOOTHING_SHIFT));
+        if (overloaded || smoothedLatency > latencyThresholdNanos) {
+            decrease();
+        } else if (concurrency * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    /**
+     * Shrinks the limit by the backoff ratio, unless it was already shrunk within the current window.
+     */
+    private void decrease() {
+        long now = System.nanoTime();
+        long last = lastDecreaseNanos.get();
+        if (now - last >= latencyThresholdNanos && lastDecreaseNanos.compareAndSet(last, now)) {
+            limit.updateAndGet(current -> Math.max(minLimit, (int) (current * BACKOFF_RATIO)));
+        }
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * @return the smoothed latency in nanoseconds, or -1 if no request has completed yet
+     */
+    public long getSmoothedLatencyNanos() {
+        return smoothedLatencyNanos.get();
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of requests rejected so far
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,127 @@
+package gg.nya.tgirlclicker.filter;
+
+import gg.nya.tgirlclicker.interceptor.RequestLoggingInterceptor;
+import gg.nya.tgirlclicker.logging.DebugSamplingTurboFilter;
+import gg.nya.tgirlclicker.logging.RequestRecord;
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import gg.nya.tgirlclicker.repository.DatabaseBulkheadFullException;
+import gg.nya.tgirlclicker.service.LinkService;
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
+import gg.nya.tgirlclicker.service.shorthand.ShorthandAllocator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Servlet filter answering shorthand redirects before they reach the DispatcherServlet.
+ * Handles GET requests for a single path segment without a dot, the same paths matched by
+ * {@link gg.nya.tgirlclicker.controller.PageController#redirectToLink}, except for the paths served by the controller
+ * itself. Never creates a session. All other requests are passed on to the filter chain unchanged.
+ */
+public class RedirectFastPathFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RedirectFastPathFilter.class);
+
+    private final LinkService linkService;
+    private final RedirectPageTemplate redirectPageTemplate;
+    private final LinkMetrics linkMetrics;
+
+    public RedirectFastPathFilter(LinkService linkService, RedirectPageTemplate redirectPageTemplate,
+                                  LinkMetrics linkMetrics) {
+        this.linkService = linkService;
+        this.redirectPageTemplate = redirectPageTemplate;
+        this.linkMetrics = linkMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String shorthand = extractShorthand(request);
+        if (shorthand == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String clientIp = RequestLoggingInterceptor.getClientIpAddress(request);
+        String userAgent = RequestLoggingInterceptor.getUserAgent(request);
+        MDC.put("clientIp", clientIp);
+        MDC.put("userAgent", userAgent);
+        DebugSamplingTurboFilter.sampleRequest();
+        // Bound here as well, as this filter runs before the RequestContextFilter
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        RequestRecord.begin(request, "redirectFastPath");
+        try {
+            log.debug("redirectFastPath, request to resolve shorthand: {}", shorthand);
+
+            Optional<ResolvedLink> resolvedLink = linkService.retrieveAndIncrementClickCount(shorthand, clientIp,
+                    userAgent);
+            if (resolvedLink.isEmpty()) {
+                log.debug("redirectFastPath, no link found for shorthand: {}", shorthand);
+                sendRedirect(response, request.getContextPath() + "/");
+            } else if (resolvedLink.get().alternativeMode()) {
+                log.debug("redirectFastPath, writing redirect page for shorthand: {}", shorthand);
+                redirectPageTemplate.write(request, response, resolvedLink.get().link());
+            } else {
+                log.debug("redirectFastPath, redirecting directly for shorthand: {}", shorthand);
+                sendRedirect(response, resolvedLink.get().link());
+            }
+        } catch (RuntimeException e) {
+            if (!DatabaseBulkheadFullException.isCauseOf(e)) {
+                throw e;
+            }
+            log.debug("redirectFastPath, database bulkhead full, rejecting shorthand: {}", shorthand);
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+        } finally {
+            linkMetrics.recordRequest("redirectFastPath", RequestRecord.finish(request, response.getStatus()));
+            RequestContextHolder.resetRequestAttributes();
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Extracts the shorthand from the request path, if the request is a shorthand redirect.
+     * @param request the HTTP request
+     * @return the shorthand, or null if the request should be handled by the filter chain
+     */
+    static String extractShorthand(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+        if (uri.length() <= start || uri.charAt(start - 1) != '/') {
+            return null;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            // Nested paths, static resources and encoded paths are left to the filter chain
+            if (c == '/' || c == '.' || c == '%' || c == ';') {
+                return null;
+            }
+        }
+
+        String shorthand = uri.substring(start);
+        return ShorthandAllocator.isReserved(shorthand) ? null : shorthand;
+    }
+
+    /**
+     * Sends a plain 302 redirect without touching the session.
+     * @param response the HTTP response
+     * @param location the redirect target
+     */
+    private static void sendRedirect(HttpServletResponse response, String location) {
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader("Location", location);
+    }
+}
@@ -0,0 +1,250 @@
+package gg.nya.tgirlclicker.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Pre-rendered byte template of the alternative mode redirect page.
+ * The {@code redirect} template is rendered once through the template engine with a placeholder link and split
+ * into a byte prefix and suffix. Requests then only splice in the HTML-escaped link, without involving the template
+ * engine. The template needs a web request to resolve its context-relative links, so it is rendered on first use.
+ * <p>
+ * If enabled, a gzip variant is served to clients accepting it. The prefix and suffix are deflated once, and the link
+ * is inserted between them as a stored deflate block, so no compression happens at request time.
+ */
+public class RedirectPageTemplate {
+    private static final Logger log = LoggerFactory.getLogger(RedirectPageTemplate.class);
+
+    static final String PLACEHOLDER = "tgirlclicker-link-placeholder";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int MAX_STORED_BLOCK_LENGTH = 65535;
+
+    private final ITemplateEngine templateEngine;
+    private final boolean gzipEnabled;
+
+    private volatile RenderedPage renderedPage;
+
+    public RedirectPageTemplate(ITemplateEngine templateEngine, boolean gzipEnabled) {
+        this.templateEngine = templateEngine;
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * Writes the redirect page for the given link to the response.
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @param link the destination of the link
+     * @throws IOException if the response cannot be written
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, String link) throws IOException {
+        RenderedPage page = renderedPage;
+        if (page == null) {
+            page = render(request, response);
+        }
+
+        byte[] linkBytes = escapeHtml(link).getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/html;charset=UTF-8");
+
+        if (gzipEnabled) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (acceptsGzip(request)) {
+                writeGzip(response, page, linkBytes);
+                return;
+            }
+        }
+
+        response.setContentLength(page.prefix.length + linkBytes.length + page.suffix.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(page.prefix);
+        out.write(linkBytes);
+        out.write(page.suffix);
+    }
+
+    /**
+     * Writes the gzip variant of the page, inserting the link as a stored deflate block.
+     * @param response the HTTP response
+     * @param page the rendered page
+     * @param linkBytes the escaped link
+     * @throws IOException if the response cannot be written
+     */
+    private static void writeGzip(HttpServletResponse response, RenderedPage page, byte[] linkBytes)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(page.prefix);
+        crc.update(linkBytes);
+        crc.update(page.suffix);
+        int uncompressedLength = page.prefix.length + linkBytes.length + page.suffix.length;
+
+        byte[] storedLink = storedBlocks(linkBytes);
+        response.setHeader("Content-Encoding", "gzip");
+        response.setContentLength(GZIP_HEADER.length + page.gzipPrefix.length + storedLink.length
+                + page.gzipSuffix.length + 8);
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(GZIP_HEADER);
+        out.write(page.gzipPrefix);
+        out.write(storedLink);
+        out.write(page.gzipSuffix);
+        out.write(littleEndian((int) crc.getValue()));
+        out.write(littleEndian(uncompressedLength));
+    }
+
+    /**
+     * Renders the template with a placeholder link and splits it around the placeholder.
+     * @param request the HTTP request used to build the web context
+     * @param response the HTTP response used to build the web context
+     * @return the rendered page
+     */
+    private synchronized RenderedPage render(HttpServletRequest request, HttpServletResponse response) {
+        if (renderedPage != null) {
+            return renderedPage;
+        }
+
+        JakartaServletWebApplication webApplication =
+                JakartaServletWebApplication.buildApplication(request.getServletContext());
+        WebContext context = new WebContext(webApplication.buildExchange(request, response), request.getLocale(),
+                Map.of("link", PLACEHOLDER));
+        String html = templateEngine.process("redirect", context);
+
+        int index = html.indexOf(PLACEHOLDER);
+        if (index < 0 || html.indexOf(PLACEHOLDER, index + 1) >= 0) {
+            throw new IllegalStateException("Redirect template must contain the link exactly once.");
+        }
+        byte[] prefix = html.substring(0, index).getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = html.substring(index + PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8);
+
+        renderedPage = new RenderedPage(prefix, suffix, deflate(prefix, false), deflate(suffix, true));
+        log.info("render, pre-rendered redirect page template ({} + {} bytes)", prefix.length, suffix.length);
+        return renderedPage;
+    }
+
+    /**
+     * Deflates a byte array into raw deflate blocks.
+     * @param data the data to deflate
+     * @param last if true, the output ends the deflate stream; otherwise it ends byte-aligned with a sync flush
+     * @return the deflated data
+     */
+    private static byte[] deflate(byte[] data, boolean last) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            if (last) {
+                deflater.finish();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            while (true) {
+                int length = last ? deflater.deflate(buffer) : deflater.deflate(buffer, 0, buffer.length,
+                        Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+                if (last ? deflater.finished() : length < buffer.length) {
+                    break;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Wraps data into non-final stored deflate blocks.
+     * @param data the data to wrap
+     * @return the stored blocks
+     */
+    private static byte[] storedBlocks(byte[] data) {
+        int blocks = Math.max(1, (data.length + MAX_STORED_BLOCK_LENGTH - 1) / MAX_STORED_BLOCK_LENGTH);
+        byte[] out = new byte[data.length + blocks * 5];
+        int position = 0;
+        int offset = 0;
+        do {
+            int length = Math.min(MAX_STORED_BLOCK_LENGTH, data.length - offset);
+            // BFINAL = 0, BTYPE = 00 (stored), padded to the byte boundary
+            out[position++] = 0;
+            out[position++] = (byte) length;
+            out[position++] = (byte) (length >>> 8);
+            out[position++] = (byte) ~length;
+            out[position++] = (byte) (~length >>> 8);
+            System.arraycopy(data, offset, out, position, length);
+            position += length;
+            offset += length;
+        } while (offset < data.length);
+        return out;
+    }
+
+    /**
+     * Checks whether the client accepts gzip encoded responses.
+     * @param request the HTTP request
+     * @return true if the Accept-Encoding header contains gzip
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    /**
+     * Escapes a string for use in an HTML attribute value, the same way the template engine does.
+     * @param value the value to escape
+     * @return the escaped value
+     */
+    static String escapeHtml(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    /**
+     * Encodes an int as four little-endian bytes, as used by the gzip trailer.
+     * @param value the value to encode
+     * @return the encoded bytes
+     */
+    private static byte[] littleEndian(int value) {
+        return new byte[]{(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)};
+    }
+
+    /**
+     * The rendered page, split around the link.
+     * @param prefix the bytes before the link
+     * @param suffix the bytes after the link
+     * @param gzipPrefix the prefix as raw deflate blocks ending with a sync flush
+     * @param gzipSuffix the suffix as raw deflate blocks ending the stream
+     */
+    private record RenderedPage(byte[] prefix, byte[] suffix, byte[] gzipPrefix, byte[] gzipSuffix) {
+    }
+}
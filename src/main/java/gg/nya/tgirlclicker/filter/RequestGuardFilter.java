@@ -0,0 +1,97 @@
+package gg.nya.tgirlclicker.filter;
+
+import gg.nya.tgirlclicker.repository.DatabaseBulkheadFullException;
+import gg.nya.tgirlclicker.service.shorthand.ShorthandAllocator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Servlet filter shedding load before it reaches the database.
+ * Shorthand requests for paths that can never be a shorthand, such as crawler probes for {@code /wp-admin}, are
+ * answered with a bare 404 without logging or a repository lookup. Redirects and link creations are then admitted
+ * through an {@link AdaptiveConcurrencyLimiter} each, and answered with a bare 503 when their limit is reached.
+ * Only 503 responses and failures caused by a full {@link gg.nya.tgirlclicker.repository.DatabaseBulkhead} count as
+ * overload signals; other failures are treated as normal completions.
+ */
+public class RequestGuardFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter redirectLimiter;
+    private final AdaptiveConcurrencyLimiter createLimiter;
+
+    /**
+     * @param redirectLimiter limiter for shorthand redirects, or null to admit all of them
+     * @param createLimiter limiter for link creations, or null to admit all of them
+     */
+    public RequestGuardFilter(AdaptiveConcurrencyLimiter redirectLimiter, AdaptiveConcurrencyLimiter createLimiter) {
+        this.redirectLimiter = redirectLimiter;
+        this.createLimiter = createLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter limiter;
+        String shorthand = RedirectFastPathFilter.extractShorthand(request);
+        if (shorthand != null) {
+            if (!ShorthandAllocator.isWellFormed(shorthand)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            limiter = redirectLimiter;
+        } else if (isCreateRequest(request)) {
+            limiter = createLimiter;
+        } else {
+            limiter = null;
+        }
+
+        if (limiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            filterChain.doFilter(request, response);
+            overloaded = response.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        } catch (ServletException | IOException | RuntimeException e) {
+            overloaded = DatabaseBulkheadFullException.isCauseOf(e);
+            throw e;
+        } finally {
+            limiter.release(System.nanoTime() - start, overloaded);
+        }
+    }
+
+    /**
+     * @return the limiter for shorthand redirects, or null if redirects are not limited
+     */
+    public AdaptiveConcurrencyLimiter getRedirectLimiter() {
+        return redirectLimiter;
+    }
+
+    /**
+     * @return the limiter for link creations, or null if creations are not limited
+     */
+    public AdaptiveConcurrencyLimiter getCreateLimiter() {
+        return createLimiter;
+    }
+
+    private static boolean isCreateRequest(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return false;
+        }
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        return uri.equals(contextPath + "/links") || uri.equals(contextPath + "/links/bulk");
+    }
+}
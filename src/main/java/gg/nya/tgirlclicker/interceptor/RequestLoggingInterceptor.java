@@ -1,18 +1,31 @@
 package gg.nya.tgirlclicker.interceptor;
 
+import gg.nya.tgirlclicker.logging.DebugSamplingTurboFilter;
+import gg.nya.tgirlclicker.logging.RequestRecord;
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 /**
  * Interceptor to log request details such as client IP and user agent.
- * This interceptor can be used to enrich logs with request-specific information.
+ * This interceptor can be used to enrich logs with request-specific information, and emits a single structured
+ * access log event per request via {@link RequestRecord}.
  */
 @Component
 public class RequestLoggingInterceptor implements HandlerInterceptor {
 
+    private final LinkMetrics linkMetrics;
+
+    @Autowired
+    public RequestLoggingInterceptor(LinkMetrics linkMetrics) {
+        this.linkMetrics = linkMetrics;
+    }
+
     /**
      * Pre-handle method to log client IP and user agent before the request is processed.
      * @param request the HTTP request
@@ -24,11 +37,15 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         MDC.put("clientIp", getClientIpAddress(request));
         MDC.put("userAgent", getUserAgent(request));
+        DebugSamplingTurboFilter.sampleRequest();
+        RequestRecord.begin(request, handler instanceof HandlerMethod handlerMethod
+                ? handlerMethod.getMethod().getName() : "resource");
         return true;
     }
 
     /**
-     * Post-handle method to clean up MDCs after the request is processed.
+     * Post-handle method to emit the access log event, record the request latency and clean up MDCs after the
+     * request is processed.
      * @param request the HTTP request
      * @param response the HTTP response
      * @param handler the handler for the request
@@ -36,6 +53,10 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
      */
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        String endpoint = RequestRecord.endpoint(request);
+        long latencyNanos = RequestRecord.finish(request,
+                ex != null && response.getStatus() < 400 ? 500 : response.getStatus());
+        linkMetrics.recordRequest(endpoint, latencyNanos);
         MDC.clear();
     }
 
@@ -44,10 +65,11 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
      * @param request the HTTP request
      * @return the client IP address as a String
      */
-    private String getClientIpAddress(HttpServletRequest request) {
+    public static String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+            int comma = xForwardedFor.indexOf(',');
+            return (comma < 0 ? xForwardedFor : xForwardedFor.substring(0, comma)).trim();
         }
         String xRealIp = request.getHeader("X-Real-IP");
         if (xRealIp != null && !xRealIp.isEmpty()) {
@@ -61,7 +83,7 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
      * @param request the HTTP request
      * @return the user agent as a String
      */
-    private String getUserAgent(HttpServletRequest request) {
+    public static String getUserAgent(HttpServletRequest request) {
         return request.getHeader("User-Agent") != null ? request.getHeader("User-Agent") : "Unknown";
     }
 }
\ No newline at end of file
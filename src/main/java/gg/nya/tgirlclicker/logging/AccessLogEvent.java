@@ -0,0 +1,50 @@
+package gg.nya.tgirlclicker.logging;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.logstash.logback.argument.StructuredArgument;
+
+import java.io.IOException;
+
+/**
+ * Immutable summary of a single request, logged as one structured access log event.
+ * The fields are written as top-level JSON fields by the Logstash encoder.
+ *
+ * @param endpoint        the handler that served the request
+ * @param method          the HTTP method
+ * @param status          the HTTP status of the response
+ * @param latencyNanos    the time spent handling the request in nanoseconds
+ * @param shorthand       the requested shorthand, or null if the request was not a redirect
+ * @param cacheHit        whether the shorthand was resolved from the cache, or null if no resolution took place
+ * @param resolved        whether the shorthand was resolved, or null if the request was not a redirect
+ * @param alternativeMode whether the resolved link is in alternative mode, or null if no link was resolved
+ */
+public record AccessLogEvent(String endpoint, String method, int status, long latencyNanos, String shorthand,
+                             Boolean cacheHit, Boolean resolved, Boolean alternativeMode)
+        implements StructuredArgument {
+
+    @Override
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStringField("endpoint", endpoint);
+        generator.writeStringField("httpMethod", method);
+        generator.writeNumberField("status", status);
+        generator.writeNumberField("latencyNanos", latencyNanos);
+        if (shorthand != null) {
+            generator.writeStringField("shorthand", shorthand);
+        }
+        if (cacheHit != null) {
+            generator.writeBooleanField("cacheHit", cacheHit);
+        }
+        if (resolved != null) {
+            generator.writeBooleanField("resolved", resolved);
+        }
+        if (alternativeMode != null) {
+            generator.writeBooleanField("alternativeMode", alternativeMode);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " " + method + " " + status + " in " + (latencyNanos / 1000) + "us"
+                + (shorthand == null ? "" : " shorthand=" + shorthand + " resolved=" + resolved);
+    }
+}
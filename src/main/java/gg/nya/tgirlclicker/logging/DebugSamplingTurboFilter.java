@@ -0,0 +1,89 @@
+package gg.nya.tgirlclicker.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turbo filter implementing per-request sampling of DEBUG events.
+ * At the start of each request, {@link #sampleRequest()} decides whether the DEBUG events of that request are kept
+ * and marks unsampled requests in the MDC. DEBUG and TRACE events of unsampled requests are denied before the
+ * logging event is even created. Events logged outside of requests are not affected. The MDC entry is internal and
+ * excluded by the Logstash encoder.
+ */
+public class DebugSamplingTurboFilter extends TurboFilter {
+
+    /**
+     * MDC key marking requests whose DEBUG events are not sampled.
+     */
+    public static final String MDC_KEY = "debugSampled";
+
+    private static final LongAdder deniedEvents = new LongAdder();
+
+    private volatile double sampleRate = 1.0;
+    private String loggerPrefix = "";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.INFO) || !"false".equals(MDC.get(MDC_KEY))
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        deniedEvents.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Decides whether the DEBUG events of the current request are kept, using the sample rate of the filter of the
+     * current logging configuration, and marks unsampled requests in the MDC.
+     * Must be called at the start of a request, after which the MDC must be cleared at the end of the request.
+     */
+    public static void sampleRequest() {
+        double rate = currentSampleRate();
+        if (rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate)) {
+            MDC.remove(MDC_KEY);
+        } else {
+            MDC.put(MDC_KEY, "false");
+        }
+    }
+
+    /**
+     * Looks up the sample rate of the started filter of the logging context, as the configuration may be reloaded.
+     * @return the sample rate, or 1.0 if no filter is configured
+     */
+    private static double currentSampleRate() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            for (TurboFilter filter : context.getTurboFilterList()) {
+                if (filter instanceof DebugSamplingTurboFilter sampling && sampling.isStarted()) {
+                    return sampling.sampleRate;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    /**
+     * Returns the number of DEBUG events denied because their request was not sampled.
+     * @return the number of denied events
+     */
+    public static long getDeniedEvents() {
+        return deniedEvents.sum();
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
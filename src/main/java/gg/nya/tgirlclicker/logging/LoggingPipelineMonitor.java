@@ -0,0 +1,94 @@
+package gg.nya.tgirlclicker.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.Appender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Exposes the counters of the asynchronous logging pipeline and periodically reports dropped events.
+ * The Logstash appender queues events in its own ring buffer and reports them through a
+ * {@link LogstashAppenderListener}, the console is fed by a logback {@link AsyncAppender}. The latter discards events
+ * without counting them, so only its queue depth is exposed.
+ */
+@Component
+public class LoggingPipelineMonitor {
+    private static final Logger log = LoggerFactory.getLogger(LoggingPipelineMonitor.class);
+
+    private long lastReportedDrops = 0;
+
+    /**
+     * Returns all {@link AsyncAppender}s attached to any logger of the logging context.
+     * The lookup is repeated on every call, as the logging configuration may be reloaded.
+     * @return the asynchronous appenders
+     */
+    public List<AsyncAppender> getAsyncAppenders() {
+        List<AsyncAppender> result = new ArrayList<>();
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return result;
+        }
+        for (ch.qos.logback.classic.Logger logger : context.getLoggerList()) {
+            Iterator<Appender<ch.qos.logback.classic.spi.ILoggingEvent>> appenders = logger.iteratorForAppenders();
+            while (appenders.hasNext()) {
+                if (appenders.next() instanceof AsyncAppender appender && !result.contains(appender)) {
+                    result.add(appender);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total number of events waiting in the Logstash ring buffer and the asynchronous appender queues.
+     * @return the total queue depth
+     */
+    public long getQueueDepth() {
+        return LogstashAppenderListener.getActiveListeners().stream()
+                .mapToLong(LogstashAppenderListener::getQueueDepth).sum()
+                + getAsyncAppenders().stream().mapToLong(AsyncAppender::getNumberOfElementsInQueue).sum();
+    }
+
+    /**
+     * Returns the total number of events dropped on the way to Logstash.
+     * @return the total number of dropped events
+     */
+    public long getDroppedEvents() {
+        return LogstashAppenderListener.getActiveListeners().stream()
+                .mapToLong(LogstashAppenderListener::getDroppedEvents).sum();
+    }
+
+    /**
+     * Returns the number of DEBUG events denied by request sampling.
+     * @return the number of unsampled events
+     */
+    public long getUnsampledEvents() {
+        return DebugSamplingTurboFilter.getDeniedEvents();
+    }
+
+    /**
+     * Returns the number of WARN events suppressed by rate limiting.
+     * @return the number of suppressed events
+     */
+    public long getSuppressedWarnings() {
+        return WarnRateLimitingTurboFilter.getSuppressedEvents();
+    }
+
+    /**
+     * Periodically reports the pipeline counters if events were dropped since the last report.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.logging.report-interval-ms:60000}")
+    public void report() {
+        long drops = getDroppedEvents();
+        if (drops != lastReportedDrops) {
+            log.warn("report, logging pipeline dropped {} event(s) in total, queue depth: {}", drops, getQueueDepth());
+            lastReportedDrops = drops;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package gg.nya.tgirlclicker.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import net.logstash.logback.appender.listener.LoggingEventTcpAppenderListener;
+
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener counting the events passing through the ring buffer of a Logstash TCP appender.
+ * Events still waiting in the buffer are those appended but neither sent nor failed yet. Events are dropped when the
+ * buffer is full on append, or when they cannot be sent to Logstash. Started listeners register themselves, so
+ * {@link LoggingPipelineMonitor} finds the listeners of the current configuration across reloads.
+ */
+public class LogstashAppenderListener implements LoggingEventTcpAppenderListener {
+
+    private static final Set<LogstashAppenderListener> activeListeners = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder appendedEvents = new LongAdder();
+    private final LongAdder sentEvents = new LongAdder();
+    private final LongAdder rejectedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+
+    @Override
+    public void appenderStarted(Appender<ILoggingEvent> appender) {
+        activeListeners.add(this);
+    }
+
+    @Override
+    public void appenderStopped(Appender<ILoggingEvent> appender) {
+        activeListeners.remove(this);
+    }
+
+    @Override
+    public void eventAppended(Appender<ILoggingEvent> appender, ILoggingEvent event, long durationInNanos) {
+        appendedEvents.increment();
+    }
+
+    @Override
+    public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+        rejectedEvents.increment();
+    }
+
+    @Override
+    public void eventSent(Appender<ILoggingEvent> appender, Socket socket, ILoggingEvent event,
+                          long durationInNanos) {
+        sentEvents.increment();
+    }
+
+    @Override
+    public void eventSendFailure(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+        failedEvents.increment();
+    }
+
+    /**
+     * Returns the listeners of all started appenders.
+     * @return the active listeners
+     */
+    static Set<LogstashAppenderListener> getActiveListeners() {
+        return activeListeners;
+    }
+
+    /**
+     * Returns the number of events currently waiting in the ring buffer of the appender.
+     * @return the queue depth
+     */
+    public long getQueueDepth() {
+        return Math.max(0, appendedEvents.sum() - sentEvents.sum() - failedEvents.sum());
+    }
+
+    /**
+     * Returns the number of events rejected by a full ring buffer or lost because they could not be sent.
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return rejectedEvents.sum() + failedEvents.sum();
+    }
+}
@@ -0,0 +1,114 @@
+package gg.nya.tgirlclicker.logging;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Collects facts about the current request as it is processed and emits them as a single access log event when
+ * the request completes. The record is kept as an attribute of the request between {@link #begin} and
+ * {@link #finish}, and found through the request bound by {@link RequestContextHolder}. Request threads are virtual
+ * and never reused, so a thread-local record would be allocated anew for every request as well, and would add an
+ * entry to the thread-local map of every request thread. All recording methods are no-ops outside of requests.
+ */
+public final class RequestRecord {
+    private static final Logger accessLog = LoggerFactory.getLogger("gg.nya.tgirlclicker.access");
+
+    private static final String ATTRIBUTE = RequestRecord.class.getName();
+
+    private boolean active = true;
+    private long startNanos;
+    private String endpoint;
+    private String method;
+    private String shorthand;
+    private Boolean cacheHit;
+    private Boolean resolved;
+    private Boolean alternativeMode;
+
+    private RequestRecord() {
+    }
+
+    /**
+     * Starts recording a request.
+     * @param request the HTTP request to attach the record to
+     * @param endpoint the handler serving the request
+     */
+    public static void begin(HttpServletRequest request, String endpoint) {
+        RequestRecord record = new RequestRecord();
+        record.startNanos = System.nanoTime();
+        record.endpoint = endpoint;
+        record.method = request.getMethod();
+        request.setAttribute(ATTRIBUTE, record);
+    }
+
+    /**
+     * Records whether the shorthand of the current request was served from the cache.
+     * @param hit true for a cache hit
+     */
+    public static void recordCacheHit(boolean hit) {
+        RequestRecord record = current();
+        if (record != null && record.active) {
+            record.cacheHit = hit;
+        }
+    }
+
+    /**
+     * Records the outcome of resolving a shorthand in the current request.
+     * @param shorthand the requested shorthand
+     * @param resolved whether a link was found
+     * @param alternativeMode whether the link is in alternative mode
+     */
+    public static void recordResolution(String shorthand, boolean resolved, boolean alternativeMode) {
+        RequestRecord record = current();
+        if (record != null && record.active) {
+            record.shorthand = shorthand;
+            record.resolved = resolved;
+            record.alternativeMode = resolved ? alternativeMode : null;
+        }
+    }
+
+    /**
+     * Finishes recording a request and emits its access log event.
+     * Must be called while the MDC of the request is still populated.
+     * @param request the HTTP request the record is attached to
+     * @param status the HTTP status of the response
+     * @return the latency of the request in nanoseconds, or -1 if no request was being recorded
+     */
+    public static long finish(HttpServletRequest request, int status) {
+        RequestRecord record = get(request);
+        if (record == null || !record.active) {
+            return -1;
+        }
+        record.active = false;
+
+        long latencyNanos = System.nanoTime() - record.startNanos;
+        if (accessLog.isInfoEnabled()) {
+            accessLog.info("access, {}", new AccessLogEvent(record.endpoint, record.method, status, latencyNanos,
+                    record.shorthand, record.cacheHit, record.resolved, record.alternativeMode));
+        }
+        return latencyNanos;
+    }
+
+    /**
+     * Returns the endpoint of a request being recorded.
+     * @param request the HTTP request the record is attached to
+     * @return the endpoint, or null if the request is not being recorded
+     */
+    public static String endpoint(HttpServletRequest request) {
+        RequestRecord record = get(request);
+        return record != null && record.active ? record.endpoint : null;
+    }
+
+    private static RequestRecord get(HttpServletRequest request) {
+        return request.getAttribute(ATTRIBUTE) instanceof RequestRecord record ? record : null;
+    }
+
+    private static RequestRecord current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof RequestRecord record
+                ? record : null;
+    }
+}
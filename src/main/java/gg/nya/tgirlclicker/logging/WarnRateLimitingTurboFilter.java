@@ -0,0 +1,88 @@
+package gg.nya.tgirlclicker.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turbo filter limiting how often the same WARN message is logged.
+ * Messages are identified by their format string, so "no link found for shorthand: {}" is limited as a whole
+ * regardless of the shorthand. Each format may be logged a configured number of times per interval, further
+ * occurrences in the same interval are denied and counted. Format strings are constants in the code, which bounds
+ * the number of tracked messages.
+ */
+public class WarnRateLimitingTurboFilter extends TurboFilter {
+
+    private static final LongAdder suppressedEvents = new LongAdder();
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private String loggerPrefix = "";
+    private int maxPerInterval = 10;
+    private long intervalMillis = 60000;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (level != Level.WARN || format == null || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        Window window = windows.computeIfAbsent(format, key -> new Window());
+        if (window.tryAcquire(System.currentTimeMillis(), intervalMillis, maxPerInterval)) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressedEvents.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Returns the number of WARN events suppressed by rate limiting.
+     * @return the number of suppressed events
+     */
+    public static long getSuppressedEvents() {
+        return suppressedEvents.sum();
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setMaxPerInterval(int maxPerInterval) {
+        this.maxPerInterval = maxPerInterval;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Fixed-window counter for a single message format.
+     */
+    private static final class Window {
+        private final AtomicLong start = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Counts an occurrence, starting a new window if the current one has expired.
+         * @param now the current time in epoch milliseconds
+         * @param intervalMillis the length of a window
+         * @param maxPerInterval the number of occurrences allowed per window
+         * @return true if the occurrence is within the limit
+         */
+        boolean tryAcquire(long now, long intervalMillis, int maxPerInterval) {
+            long windowStart = start.get();
+            if (now - windowStart >= intervalMillis && start.compareAndSet(windowStart, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= maxPerInterval;
+        }
+    }
+}
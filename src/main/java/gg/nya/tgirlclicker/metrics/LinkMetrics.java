@@ -0,0 +1,99 @@
+package gg.nya.tgirlclicker.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the redirect and link creation paths.
+ * All meters are registered up front, so recording never involves a registry lookup.
+ */
+@Component
+public class LinkMetrics {
+
+    private final Map<String, Timer> requestTimers;
+    private final Counter resolvedShorthands;
+    private final Counter unresolvedShorthands;
+    private final Counter rateLimitRejections;
+    private final DistributionSummary shorthandAttempts;
+
+    @Autowired
+    public LinkMetrics(MeterRegistry registry) {
+        this.requestTimers = Map.of(
+                "index", requestTimer(registry, "index"),
+                "createLink", requestTimer(registry, "createLink"),
+                "redirectToLink", requestTimer(registry, "redirectToLink"),
+                "redirectFastPath", requestTimer(registry, "redirectFastPath")
+        );
+        this.resolvedShorthands = Counter.builder("tgirlclicker.shorthands.resolved")
+                .description("Shorthand lookups by outcome")
+                .tag("outcome", "resolved")
+                .register(registry);
+        this.unresolvedShorthands = Counter.builder("tgirlclicker.shorthands.resolved")
+                .description("Shorthand lookups by outcome")
+                .tag("outcome", "unresolved")
+                .register(registry);
+        this.rateLimitRejections = Counter.builder("tgirlclicker.links.rate_limited")
+                .description("Link creations rejected because the client is under penalty")
+                .register(registry);
+        this.shorthandAttempts = DistributionSummary.builder("tgirlclicker.shorthand.attempts")
+                .description("Candidate shorthands generated per allocated shorthand")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Records the latency of a request to one of the instrumented endpoints. Other endpoints are ignored.
+     * @param endpoint the handler that served the request
+     * @param latencyNanos the latency in nanoseconds
+     */
+    public void recordRequest(String endpoint, long latencyNanos) {
+        Timer timer = endpoint == null ? null : requestTimers.get(endpoint);
+        if (timer != null && latencyNanos >= 0) {
+            timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the outcome of a shorthand lookup.
+     * @param resolved whether the shorthand resolved to a link
+     */
+    public void recordResolution(boolean resolved) {
+        (resolved ? resolvedShorthands : unresolvedShorthands).increment();
+    }
+
+    /**
+     * Records a link creation rejected by the rate limiter.
+     */
+    public void recordRateLimitRejection() {
+        rateLimitRejections.increment();
+    }
+
+    /**
+     * Records how many candidate shorthands were generated to allocate one shorthand.
+     * @param attempts the number of attempts
+     */
+    public void recordShorthandAttempts(int attempts) {
+        shorthandAttempts.record(attempts);
+    }
+
+    /**
+     * Builds the latency timer of an endpoint.
+     * @param registry the meter registry
+     * @param endpoint the endpoint name
+     * @return the timer
+     */
+    private static Timer requestTimer(MeterRegistry registry, String endpoint) {
+        return Timer.builder("tgirlclicker.requests")
+                .description("Latency of requests to the instrumented endpoints")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,273 @@
+package gg.nya.tgirlclicker.metrics;
+
+import gg.nya.tgirlclicker.filter.AdaptiveConcurrencyLimiter;
+import gg.nya.tgirlclicker.filter.RequestGuardFilter;
+import gg.nya.tgirlclicker.logging.LoggingPipelineMonitor;
+import gg.nya.tgirlclicker.repository.DatabaseBulkhead;
+import gg.nya.tgirlclicker.repository.ReplicaReadInterceptor;
+import gg.nya.tgirlclicker.repository.ReplicaRoutingDataSource;
+import gg.nya.tgirlclicker.service.ClickCountBuffer;
+import gg.nya.tgirlclicker.service.CreationRateLimiter;
+import gg.nya.tgirlclicker.service.ShorthandCache;
+import gg.nya.tgirlclicker.service.clicklog.ClickEventLog;
+import gg.nya.tgirlclicker.service.coordination.ClusterCoordinator;
+import gg.nya.tgirlclicker.service.index.ShorthandIndex;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Binds the application's in-memory structures to the meter registry.
+ * HikariCP pool metrics of the primary pool are bound by the Spring Boot auto-configuration, those of the replica
+ * pools by {@link #readReplicaMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+    private static final Logger log = LoggerFactory.getLogger(MetricsConfig.class);
+
+    /**
+     * Binds hit, miss and eviction statistics of the shorthand resolution caches.
+     * @param shorthandCache the shorthand cache
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder shorthandCacheMetrics(ShorthandCache shorthandCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, shorthandCache.getResolvedLinks(), "shorthandResolution");
+            CaffeineCacheMetrics.monitor(registry, shorthandCache.getMissingShorthands(), "shorthandMisses");
+        };
+    }
+
+    /**
+     * Binds gauges for pending clicks, rate limiter size and shorthand index size.
+     * @param clickCountBuffer the click count buffer
+     * @param creationRateLimiter the creation rate limiter
+     * @param shorthandIndex the shorthand index
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder linkStateMetrics(ClickCountBuffer clickCountBuffer, CreationRateLimiter creationRateLimiter,
+                                        ShorthandIndex shorthandIndex) {
+        return registry -> {
+            Gauge.builder("tgirlclicker.shorthand_index.size", shorthandIndex, ShorthandIndex::size)
+                    .description("Links held in the off-heap shorthand index")
+                    .register(registry);
+            Gauge.builder("tgirlclicker.clicks.pending", clickCountBuffer, ClickCountBuffer::getPendingClickCount)
+                    .description("Clicks recorded but not yet flushed to the database")
+                    .register(registry);
+            Gauge.builder("tgirlclicker.rate_limit.tracked_ips", creationRateLimiter,
+                            CreationRateLimiter::getTrackedIpCount)
+                    .description("Client IPs tracked by the link creation rate limiter")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds the counters of the asynchronous logging pipeline.
+     * @param monitor the logging pipeline monitor
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder loggingPipelineMetrics(LoggingPipelineMonitor monitor) {
+        return registry -> {
+            Gauge.builder("tgirlclicker.logging.queue_depth", monitor, LoggingPipelineMonitor::getQueueDepth)
+                    .description("Events waiting in the Logstash ring buffer and the asynchronous appender queues")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.logging.dropped", monitor, LoggingPipelineMonitor::getDroppedEvents)
+                    .description("Events dropped on the way to Logstash")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.logging.unsampled", monitor,
+                            LoggingPipelineMonitor::getUnsampledEvents)
+                    .description("DEBUG events denied by request sampling")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.logging.suppressed", monitor,
+                            LoggingPipelineMonitor::getSuppressedWarnings)
+                    .description("WARN events suppressed by rate limiting")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds the permit and rejection counters of the database bulkhead, if it is enabled.
+     * @param dataSource the data source, wrapping a {@link DatabaseBulkhead} if it is enabled
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            DatabaseBulkhead bulkhead = DataSourceUnwrapper.unwrap(dataSource, DatabaseBulkhead.class);
+            if (bulkhead == null) {
+                return;
+            }
+            Gauge.builder("tgirlclicker.db_bulkhead.available_permits", bulkhead,
+                            DatabaseBulkhead::getAvailablePermits)
+                    .description("Connections that can be taken from the primary pool without waiting")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.db_bulkhead.rejected", bulkhead, DatabaseBulkhead::getRejectedCalls)
+                    .description("Connection requests rejected because no permit was available in time")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds the limits, in-flight requests, smoothed latencies and rejections of the load shedding limiters.
+     * @param requestGuardFilter the request guard filter holding the limiters
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder loadSheddingMetrics(RequestGuardFilter requestGuardFilter) {
+        return registry -> {
+            bindLimiter(registry, "redirect", requestGuardFilter.getRedirectLimiter());
+            bindLimiter(registry, "create", requestGuardFilter.getCreateLimiter());
+        };
+    }
+
+    private static void bindLimiter(MeterRegistry registry, String endpoint, AdaptiveConcurrencyLimiter limiter) {
+        if (limiter == null) {
+            return;
+        }
+        Gauge.builder("tgirlclicker.load_shedding.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        Gauge.builder("tgirlclicker.load_shedding.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently admitted by the limiter")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        Gauge.builder("tgirlclicker.load_shedding.smoothed_latency", limiter,
+                        AdaptiveConcurrencyLimiter::getSmoothedLatencyNanos)
+                .description("Smoothed latency the limiter compares against its threshold, -1 before the first request")
+                .baseUnit("nanoseconds")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        FunctionCounter.builder("tgirlclicker.load_shedding.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Requests rejected with 503 by the limiter")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    /**
+     * Binds the queue depth and dropped clicks of the click event log.
+     * @param clickEventLog the click event log
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder clickEventLogMetrics(ClickEventLog clickEventLog) {
+        return registry -> {
+            Gauge.builder("tgirlclicker.click_log.queue_depth", clickEventLog, ClickEventLog::getQueueDepth)
+                    .description("Clicks waiting to be written to the click event log")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.click_log.dropped", clickEventLog, ClickEventLog::getDroppedClicks)
+                    .description("Clicks dropped because the click event log queue was full")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds the event counters and the connection state of the cluster coordination.
+     * @param clusterCoordinator the cluster coordinator
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder clusterCoordinationMetrics(ClusterCoordinator clusterCoordinator) {
+        return registry -> {
+            Gauge.builder("tgirlclicker.coordination.connected", clusterCoordinator,
+                            coordinator -> coordinator.isConnected() ? 1 : 0)
+                    .description("Whether this instance is listening for cache invalidations of other instances")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.coordination.events", clusterCoordinator,
+                            ClusterCoordinator::getPublishedEvents)
+                    .tag("direction", "published")
+                    .description("Cache invalidation events exchanged with other instances")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.coordination.events", clusterCoordinator,
+                            ClusterCoordinator::getReceivedEvents)
+                    .tag("direction", "received")
+                    .description("Cache invalidation events exchanged with other instances")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.coordination.dropped", clusterCoordinator,
+                            ClusterCoordinator::getDroppedEvents)
+                    .description("Cache invalidation events that could not be published")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.coordination.resyncs", clusterCoordinator,
+                            ClusterCoordinator::getResyncs)
+                    .description("Full cache resyncs after (re)connecting to the event channel")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds the replication lag of each read replica and the routing of replica reads, if replicas are configured.
+     * @param dataSource the data source, a {@link ReplicaRoutingDataSource} if replicas are configured
+     * @param replicaReadInterceptor the interceptor routing the replica reads
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder readReplicaMetrics(DataSource dataSource, ReplicaReadInterceptor replicaReadInterceptor) {
+        return registry -> {
+            if (!(dataSource instanceof ReplicaRoutingDataSource routingDataSource)) {
+                return;
+            }
+            for (DataSource replica : routingDataSource.getReplicas()) {
+                bindPoolMetrics(replica, registry);
+            }
+            for (int i = 0; i < routingDataSource.getReplicaCount(); i++) {
+                int replica = i;
+                Gauge.builder("tgirlclicker.read_replicas.lag", routingDataSource,
+                                ds -> ds.getReplicaLagMillis(replica))
+                        .tag("replica", String.valueOf(replica + 1))
+                        .baseUnit("milliseconds")
+                        .description("Replication lag at the last check, -1 if the replica could not be checked")
+                        .register(registry);
+            }
+            FunctionCounter.builder("tgirlclicker.read_replicas.reads", routingDataSource,
+                            ReplicaRoutingDataSource::getReplicaReads)
+                    .tag("target", "replica")
+                    .description("Replica reads by the data source serving them")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.read_replicas.reads", routingDataSource,
+                            ReplicaRoutingDataSource::getPrimaryReads)
+                    .tag("target", "primary")
+                    .description("Replica reads by the data source serving them")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.read_replicas.misses", replicaReadInterceptor,
+                            ReplicaReadInterceptor::getReplicaMisses)
+                    .tag("outcome", "found_on_primary")
+                    .description("Replica lookups without result, repeated on the primary")
+                    .register(registry);
+            FunctionCounter.builder("tgirlclicker.read_replicas.misses", replicaReadInterceptor,
+                            ReplicaReadInterceptor::getConfirmedMisses)
+                    .tag("outcome", "confirmed")
+                    .description("Replica lookups without result, repeated on the primary")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Binds HikariCP pool metrics of a replica pool, tagged with its pool name.
+     * The pool configuration is sealed once the first connection was taken, metrics are skipped in that case.
+     */
+    private static void bindPoolMetrics(DataSource dataSource, MeterRegistry registry) {
+        HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+        if (hikari == null) {
+            return;
+        }
+        try {
+            hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        } catch (IllegalStateException e) {
+            log.warn("bindPoolMetrics, pool {} already started, pool metrics not bound", hikari.getPoolName());
+        }
+    }
+}
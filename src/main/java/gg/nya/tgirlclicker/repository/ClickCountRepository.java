@@ -0,0 +1,17 @@
+package gg.nya.tgirlclicker.repository;
+
+import java.util.Map;
+
+/**
+ * Repository fragment for write-behind click count updates.
+ * Implemented with plain JDBC so that many counters can be applied in a single batched statement.
+ */
+public interface ClickCountRepository {
+    /**
+     * Adds the given deltas to the click counts of the respective links in a single JDBC batch.
+     * Shorthands that do not exist are ignored.
+     *
+     * @param deltas map of shorthand to the number of clicks to add
+     */
+    void incrementClickCounts(Map<String, Long> deltas);
+}
@@ -0,0 +1,35 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link ClickCountRepository}.
+ * Picked up by Spring Data as the implementation of the fragment mixed into {@link LinkRepository}.
+ */
+public class ClickCountRepositoryImpl implements ClickCountRepository {
+
+    private static final String INCREMENT_SQL = "UPDATE links SET click_count = click_count + ? WHERE shorthand = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ClickCountRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((shorthand, delta) -> batchArgs.add(new Object[]{delta, shorthand}));
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, batchArgs);
+    }
+}
@@ -0,0 +1,72 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC repository for the hourly click rollups compacted from the click event log.
+ */
+@Repository
+public class ClickRollupRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO click_rollups (shorthand, hour_start, clicks) "
+            + "VALUES (?, ?, ?) ON CONFLICT (shorthand, hour_start) DO UPDATE SET clicks = click_rollups.clicks + EXCLUDED.clicks";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ClickRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Checks whether a click log segment has already been compacted.
+     * @param segmentName the file name of the segment
+     * @return true if the rollups of the segment have been saved
+     */
+    public boolean isSegmentCompacted(String segmentName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM click_log_segments WHERE name = ?",
+                Integer.class, segmentName);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Adds the rollups of a click log segment and marks the segment as compacted, in one transaction.
+     * @param segmentName the file name of the segment
+     * @param rollups map of shorthand to map of hour start to clicks
+     */
+    @Transactional
+    public void saveRollups(String segmentName, Map<String, Map<Instant, Long>> rollups) {
+        jdbcTemplate.update("INSERT INTO click_log_segments (name, compacted_at) VALUES (?, now())", segmentName);
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        rollups.forEach((shorthand, hours) -> hours.forEach((hour, clicks) ->
+                batchArgs.add(new Object[]{shorthand, OffsetDateTime.ofInstant(hour, ZoneOffset.UTC), clicks})));
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batchArgs);
+        }
+    }
+
+    /**
+     * Returns the hourly clicks of a link since the given point in time, oldest first.
+     * Hours without clicks are omitted.
+     * @param shorthand the shorthand of the link
+     * @param since the earliest hour to return
+     * @return the hourly clicks
+     */
+    public List<HourlyClicks> findHourlyClicks(String shorthand, Instant since) {
+        return jdbcTemplate.query("SELECT hour_start, clicks FROM click_rollups "
+                        + "WHERE shorthand = ? AND hour_start >= ? ORDER BY hour_start",
+                (rs, rowNum) -> new HourlyClicks(rs.getObject(1, OffsetDateTime.class).toInstant(), rs.getLong(2)),
+                shorthand, OffsetDateTime.ofInstant(since, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,149 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Semaphore bulkhead limiting the number of connections taken from the primary connection pool at the same time.
+ * With virtual threads the number of concurrent requests is no longer bounded by the request thread pool, so without
+ * a limit every blocked request would queue up inside the connection pool. A permit is acquired when a connection is
+ * taken and released when it is closed, so it covers whole transactions as well as {@code JdbcTemplate} calls.
+ * Connections that cannot get a permit within the configured timeout fail fast with a
+ * {@link DatabaseBulkheadFullException} instead. Transaction managers wrap that exception, see
+ * {@link DatabaseBulkheadFullException#isCauseOf(Throwable)}.
+ */
+public class DatabaseBulkhead extends DelegatingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBulkhead.class);
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    public DatabaseBulkhead(DataSource targetDataSource, int maxConcurrentCalls, Duration acquireTimeout) {
+        super(targetDataSource);
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Database bulkhead must allow at least 1 concurrent call.");
+        }
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        return withPermit(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermit();
+        return withPermit(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * Returns the number of connections that can currently be taken without waiting.
+     * @return the number of available permits
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of connection requests rejected because no permit was available in time.
+     * @return the number of rejected calls
+     */
+    public long getRejectedCalls() {
+        return rejectedCalls.sum();
+    }
+
+    private void acquirePermit() throws SQLException {
+        boolean acquired;
+        try {
+            // Barging acquire first, so an uncontended call never waits behind the fairness queue
+            acquired = permits.tryAcquire() || permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database permit.", e);
+        }
+        if (!acquired) {
+            rejectedCalls.increment();
+            log.warn("acquirePermit, no database permit available within timeout, rejecting connection request");
+            throw new DatabaseBulkheadFullException();
+        }
+    }
+
+    /**
+     * Takes a connection while holding a permit, returning a proxy that releases the permit when it is closed.
+     * The permit is released immediately if no connection could be taken.
+     */
+    private Connection withPermit(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new PermitReleasingHandler(connection));
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Forwards all calls to the pooled connection and releases the permit once, when the connection is closed.
+     */
+    private final class PermitReleasingHandler implements InvocationHandler {
+        private final Connection target;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                case "close":
+                    try {
+                        target.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                    return null;
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
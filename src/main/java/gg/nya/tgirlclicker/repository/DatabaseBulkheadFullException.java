@@ -0,0 +1,31 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a connection cannot get a permit from the {@link DatabaseBulkhead} in time.
+ * Answered with 503 Service Unavailable, also when wrapped by a transaction manager.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DatabaseBulkheadFullException extends RuntimeException {
+
+    public DatabaseBulkheadFullException() {
+        super("Too many concurrent database calls, no permit available within timeout.");
+    }
+
+    /**
+     * Checks whether a failure was caused by a full bulkhead. Transaction managers wrap exceptions thrown while
+     * a connection is taken at the start of a transaction, so the exception may be a cause of the failure.
+     * @param failure the failure to check
+     * @return true if the failure or one of its causes is a {@link DatabaseBulkheadFullException}
+     */
+    public static boolean isCauseOf(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof DatabaseBulkheadFullException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
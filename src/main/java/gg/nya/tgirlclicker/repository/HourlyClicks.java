@@ -0,0 +1,12 @@
+package gg.nya.tgirlclicker.repository;
+
+import java.time.Instant;
+
+/**
+ * Number of clicks on a link within one hour.
+ *
+ * @param hour   the start of the hour
+ * @param clicks the number of clicks
+ */
+public record HourlyClicks(Instant hour, long clicks) {
+}
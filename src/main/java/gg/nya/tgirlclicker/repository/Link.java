@@ -8,15 +8,23 @@ import java.util.Date;
  * Represents a link in the database.
  * Each link has a shorthand, an alternative mode flag, the actual link,
  * a click count, client IP, user agent, and a creation date.
+ * The schema is managed by the Flyway migrations in {@code db/migration}; the indexes declared here mirror them.
  */
 @Entity
-@Table(name = "links")
+@Table(name = "links", indexes = {
+        @Index(name = "uk_links_shorthand", columnList = "shorthand", unique = true),
+        @Index(name = "idx_links_client_ip_created_date", columnList = "clientIp, createdDate DESC"),
+        @Index(name = "idx_links_link_hash_alternative_mode", columnList = "linkHash, alternativeMode")
+})
 public class Link {
     /**
      * Unique identifier for the link.
+     * Drawn from {@code links_id_seq} in blocks of 50, matching the increment of the sequence, so inserts can be
+     * batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "links_id_seq")
+    @SequenceGenerator(name = "links_id_seq", sequenceName = "links_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -38,11 +46,20 @@ public class Link {
     @Column(nullable = false)
     private String link;
 
+    /**
+     * Fingerprint of the normalized destination, used for indexed duplicate detection.
+     * May be null for links created before fingerprints were introduced until they are backfilled. Those links are
+     * matched by their exact destination through the partial index {@code idx_links_unhashed_link}, which cannot be
+     * declared here.
+     */
+    @Column
+    private Long linkHash;
+
     /**
      * The number of times the link has been requested.
      */
     @Column(nullable = false)
-    private int clickCount = 0;
+    private long clickCount = 0;
 
     /**
      * The IP address of the client that created the link.
@@ -89,11 +106,19 @@ public class Link {
         this.link = link;
     }
     
-    public int getClickCount() {
+    public Long getLinkHash() {
+        return linkHash;
+    }
+
+    public void setLinkHash(Long linkHash) {
+        this.linkHash = linkHash;
+    }
+
+    public long getClickCount() {
         return clickCount;
     }
     
-    public void setClickCount(int clickCount) {
+    public void setClickCount(long clickCount) {
         this.clickCount = clickCount;
     }
 
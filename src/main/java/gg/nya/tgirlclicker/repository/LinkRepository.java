@@ -1,40 +1,99 @@
 package gg.nya.tgirlclicker.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * JPA repository for managing Link entities.
+ * Queries marked with {@link ReplicaRead} may be served by read replicas, all others run on the primary.
  */
 @Repository
-public interface LinkRepository extends CrudRepository<Link, Long> {
+public interface LinkRepository extends CrudRepository<Link, Long>, ClickCountRepository {
     /**
      * Finds a Link by its shorthand.
      *
      * @param shorthand the shorthand of the link
      * @return an Optional containing the Link if found, or empty if not found
      */
+    @ReplicaRead(confirmMissOnPrimary = true)
     Optional<Link> findLinkByShorthand(String shorthand);
 
     /**
-     * Finds a Link by its destination and alternative mode.
-     * @param link the link destination
+     * Resolves a shorthand to its destination without loading a managed Link entity.
+     * Runs in a read-only transaction, so no dirty checking or flushing takes place.
+     *
+     * @param shorthand the shorthand of the link
+     * @return an Optional containing the projection if found, or empty if not found
+     */
+    @ReplicaRead(confirmMissOnPrimary = true)
+    @Transactional(readOnly = true)
+    @Query("SELECT new gg.nya.tgirlclicker.repository.LinkTarget(l.shorthand, l.link, l.alternativeMode) " +
+            "FROM Link l WHERE l.shorthand = ?1")
+    Optional<LinkTarget> findTargetByShorthand(String shorthand);
+
+    /**
+     * Finds all Links with the given destination fingerprint and alternative mode.
+     * Links created before fingerprints existed are matched by their exact destination until they are backfilled.
+     * Different destinations may share a fingerprint, so callers must compare the destinations themselves.
+     * @param linkHash the fingerprint of the normalized destination
+     * @param links the destinations to match exactly among links without a fingerprint
      * @param alternativeMode whether the link is in alternative mode
-     * @return an Optional containing the Link if found, or empty if not found
+     * @return a list of Links matching the fingerprint or one of the destinations
+     */
+    @Query("SELECT l FROM Link l WHERE l.alternativeMode = ?3 "
+            + "AND (l.linkHash = ?1 OR (l.linkHash IS NULL AND l.link IN ?2))")
+    List<Link> findCandidateLinks(Long linkHash, Collection<String> links, boolean alternativeMode);
+
+    /**
+     * Finds all Links with any of the given destination fingerprints and alternative mode.
+     * Links created before fingerprints existed are matched by their exact destination until they are backfilled.
+     * Different destinations may share a fingerprint, so callers must compare the destinations themselves.
+     * @param linkHashes the fingerprints of the normalized destinations
+     * @param links the destinations to match exactly among links without a fingerprint
+     * @param alternativeMode whether the links are in alternative mode
+     * @return a list of Links matching any of the fingerprints or destinations
+     */
+    @Query("SELECT l FROM Link l WHERE l.alternativeMode = ?3 "
+            + "AND (l.linkHash IN ?1 OR (l.linkHash IS NULL AND l.link IN ?2))")
+    List<Link> findCandidateLinksIn(Collection<Long> linkHashes, Collection<String> links, boolean alternativeMode);
+
+    /**
+     * Finds Links that do not have a destination fingerprint yet.
+     * @param pageable the page of links to return
+     * @return a list of Links without a fingerprint
+     */
+    List<Link> findLinksByLinkHashIsNull(Pageable pageable);
+
+    /**
+     * Sets the destination fingerprint of a single Link without touching any other column.
+     * @param id the id of the link
+     * @param linkHash the fingerprint of the normalized destination
      */
-    Optional<Link> findLinkByLinkAndAlternativeMode(String link, boolean alternativeMode);
+    @Modifying
+    @Query("UPDATE Link l SET l.linkHash = ?2 WHERE l.id = ?1")
+    void updateLinkHash(Long id, Long linkHash);
 
     /**
-     * Finds the most recent links created by a specific client IP address within the last 24 hours.
+     * Finds the creation dates of the most recent links created by a specific client IP address since a point in
+     * time, newest first.
+     * The window start is passed in rather than computed by the database, as creation dates are written with the
+     * clock and time zone of the application.
      * @param clientIp the client IP address
-     * @return a list of recent Link entities created by the specified client IP
+     * @param since the earliest creation date to include
+     * @return a list of creation dates of recent links created by the specified client IP
      */
-    @Query("SELECT l FROM Link l WHERE l.clientIp = ?1 AND l.createdDate >= (CURRENT_DATE - 1 DAY) ORDER BY l.createdDate DESC LIMIT 10")
-    List<Link> findRecentLinksByClientIp(String clientIp);
+    @Query("SELECT l.createdDate FROM Link l WHERE l.clientIp = ?1 AND l.createdDate >= ?2 "
+            + "ORDER BY l.createdDate DESC LIMIT 10")
+    List<Date> findRecentCreationDatesByClientIp(String clientIp, Date since);
 
     /**
      * Checks if a Link exists by its shorthand.
@@ -46,9 +105,11 @@ public interface LinkRepository extends CrudRepository<Link, Long> {
 
     /**
      * Calculates the total click count across all Link entities.
+     * Always read from the primary, as the reconciliation adds the clicks flushed since to it, and a lagging replica
+     * would miss clicks flushed before its snapshot.
      *
      * @return the total click count, or 0 if no links exist
      */
     @Query("SELECT COALESCE(SUM(clickCount), 0) FROM Link")
-    int sumClickCount();
+    long sumClickCount();
 }
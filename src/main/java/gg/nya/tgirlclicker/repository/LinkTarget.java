@@ -0,0 +1,11 @@
+package gg.nya.tgirlclicker.repository;
+
+/**
+ * Read-only projection of a {@link Link} containing only what is needed to resolve a redirect.
+ *
+ * @param shorthand       the shorthand via which the link is accessed
+ * @param link            the destination of the link
+ * @param alternativeMode whether the redirect page should be shown before redirecting
+ */
+public record LinkTarget(String shorthand, String link, boolean alternativeMode) {
+}
@@ -0,0 +1,32 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically measures the replication lag of the read replicas, if any are configured.
+ * Replica reads are only routed to replicas that have been checked, so the first check runs right at startup.
+ */
+@Component
+public class ReplicaLagMonitor {
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public ReplicaLagMonitor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Measures the lag of every replica and takes lagging replicas out of rotation.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.read-replicas.lag-check-interval-ms:1000}")
+    public void checkReplicaLag() {
+        if (dataSource instanceof ReplicaRoutingDataSource routingDataSource) {
+            routingDataSource.checkReplicaLag();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package gg.nya.tgirlclicker.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository query that may be served by a read replica when replicas are configured.
+ * Only queries that tolerate replication lag should be marked. Queries that are followed by writes based on their
+ * result, such as duplicate and penalty checks on link creation, must keep reading from the primary.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplicaRead {
+
+    /**
+     * Whether an empty result from a replica is confirmed on the primary. Set for lookups of single rows, so a row
+     * that was just inserted and has not been replicated yet is still found.
+     * @return true to repeat empty lookups on the primary
+     */
+    boolean confirmMissOnPrimary() default false;
+}
@@ -0,0 +1,67 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes repository queries marked with {@link ReplicaRead} to the read replicas of a
+ * {@link ReplicaRoutingDataSource}. Lookups marked to confirm misses are repeated on the primary if the replica
+ * returned nothing, so links resolve immediately after their creation even if the replicas have not caught up yet.
+ * Missing shorthands are cached negatively, which keeps these confirmations from reaching the primary repeatedly.
+ */
+public class ReplicaReadInterceptor implements MethodInterceptor {
+
+    private final LongAdder confirmedMisses = new LongAdder();
+    private final LongAdder replicaMisses = new LongAdder();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ReplicaRead replicaRead = AnnotationUtils.findAnnotation(invocation.getMethod(), ReplicaRead.class);
+        if (replicaRead == null) {
+            return ReplicaRoutingDataSource.withReplicaRead(false, invocation::proceed);
+        }
+
+        // Cloned before proceeding, as an invocation can only proceed once
+        MethodInvocation primaryInvocation = replicaRead.confirmMissOnPrimary()
+                ? ((ProxyMethodInvocation) invocation).invocableClone()
+                : null;
+        Object result = ReplicaRoutingDataSource.withReplicaRead(true, invocation::proceed);
+        if (primaryInvocation == null || !isEmpty(result)) {
+            return result;
+        }
+
+        Object confirmed = ReplicaRoutingDataSource.withReplicaRead(false, primaryInvocation::proceed);
+        if (isEmpty(confirmed)) {
+            confirmedMisses.increment();
+        } else {
+            replicaMisses.increment();
+        }
+        return confirmed;
+    }
+
+    private static boolean isEmpty(Object result) {
+        return result == null || (result instanceof Optional<?> optional && optional.isEmpty());
+    }
+
+    /**
+     * Returns the number of replica misses the primary confirmed, i.e. lookups of rows that do not exist.
+     * @return the number of confirmed misses
+     */
+    public long getConfirmedMisses() {
+        return confirmedMisses.sum();
+    }
+
+    /**
+     * Returns the number of rows missing on the replica but found on the primary, i.e. reads that hit replication
+     * lag.
+     * @return the number of replica misses
+     */
+    public long getReplicaMisses() {
+        return replicaMisses.sum();
+    }
+}
@@ -0,0 +1,211 @@
+package gg.nya.tgirlclicker.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Data source sending replica reads to one of several read replicas and everything else to the primary.
+ * <p>
+ * A connection is taken from a replica only while a query marked with {@link ReplicaRead} runs outside of an
+ * existing transaction, see {@link ReplicaReadInterceptor}. Replicas are picked round-robin among those whose
+ * replication lag was below the configured maximum at the last check. Until a replica has been checked, or if none
+ * is healthy, replica reads are served by the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Zero on a server that is not in recovery, e.g. a second local database standing in for a replica
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private static final ThreadLocal<Boolean> replicaRead = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long maxLagMillis;
+    // Last measured lag per replica in milliseconds, -1 if unknown or the replica could not be reached
+    private final AtomicLongArray lagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one read replica must be configured.");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLag.toMillis();
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMillis.set(i, -1);
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs a replica read, or a primary read if {@code replica} is false, restoring the previous mode afterwards.
+     * Has no effect on connections already bound to a transaction.
+     * @param replica whether connections taken by the action may come from a replica
+     * @param action the action to run
+     * @return the result of the action
+     * @throws Throwable if the action throws
+     */
+    static <T> T withReplicaRead(boolean replica, ThrowingSupplier<T> action) throws Throwable {
+        Boolean previous = replicaRead.get();
+        replicaRead.set(replica);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                replicaRead.remove();
+            } else {
+                replicaRead.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!Boolean.TRUE.equals(replicaRead.get())) {
+            return null;
+        }
+        int replicaCount = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+        for (int i = 0; i < replicaCount; i++) {
+            int replica = (start + i) % replicaCount;
+            if (isHealthy(lagMillis.get(replica))) {
+                replicaReads.increment();
+                return replica;
+            }
+        }
+        primaryReads.increment();
+        return null;
+    }
+
+    /**
+     * Measures the replication lag of every replica. Replicas that lag behind by more than the configured maximum
+     * or cannot be reached are skipped until the next check.
+     */
+    public void checkReplicaLag() {
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag = measureLag(replicas.get(i));
+            boolean wasHealthy = isHealthy(lagMillis.getAndSet(i, lag));
+            if (wasHealthy != isHealthy(lag)) {
+                if (isHealthy(lag)) {
+                    log.info("checkReplicaLag, replica {} is serving reads again, lag: {} ms", i + 1, lag);
+                } else {
+                    log.warn("checkReplicaLag, replica {} removed from reads, lag: {} ms", i + 1, lag);
+                }
+            }
+        }
+    }
+
+    private long measureLag(DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+            if (!resultSet.next()) {
+                return -1;
+            }
+            double lag = resultSet.getDouble(1);
+            return resultSet.wasNull() ? -1 : Math.max(0, Math.round(lag));
+        } catch (SQLException e) {
+            log.debug("measureLag, could not measure replication lag: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private boolean isHealthy(long lag) {
+        return lag >= 0 && lag <= maxLagMillis;
+    }
+
+    /**
+     * Returns the number of configured replicas.
+     * @return the replica count
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Returns the replication lag measured at the last check.
+     * @param replica the index of the replica
+     * @return the lag in milliseconds, or -1 if the replica could not be checked
+     */
+    public long getReplicaLagMillis(int replica) {
+        return lagMillis.get(replica);
+    }
+
+    /**
+     * Returns the number of replica reads served by a replica.
+     * @return the number of connections taken from replicas
+     */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * Returns the number of replica reads served by the primary because no replica was healthy.
+     * @return the number of connections taken from the primary instead of a replica
+     */
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    /**
+     * Returns the replica data sources in configuration order, e.g. for binding connection pool metrics.
+     * @return the replica data sources
+     */
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Returns the primary data source, e.g. for binding connection pool metrics.
+     * @return the primary data source
+     */
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @FunctionalInterface
+    interface ThrowingSupplier<T> {
+        T get() throws Throwable;
+    }
+}
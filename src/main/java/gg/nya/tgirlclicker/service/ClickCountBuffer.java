@@ -0,0 +1,138 @@
+package gg.nya.tgirlclicker.service;
+
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-behind buffer for link click counts.
+ * Clicks are accumulated in memory per shorthand and periodically flushed to the database as batched
+ * {@code click_count = click_count + ?} updates, so the redirect path itself never writes to the database.
+ * <p>
+ * Counters are kept for every shorthand that has been clicked at least once, which bounds the map by the number
+ * of links. They are never removed, since removing a counter could race with a concurrent increment and lose it.
+ */
+@Component
+public class ClickCountBuffer {
+    private static final Logger log = LoggerFactory.getLogger(ClickCountBuffer.class);
+
+    private final ConcurrentHashMap<String, LongAdder> pendingClicks = new ConcurrentHashMap<>();
+    // Held while clicks move from the buffer to the database, see sumWithPending
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final LinkRepository linkRepository;
+    private final int maxBatchSize;
+
+    @Autowired
+    public ClickCountBuffer(LinkRepository linkRepository,
+                            @Value("${tgirlclicker.clicks.max-batch-size:500}") int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Click flush batch size must be at least 1.");
+        }
+        this.linkRepository = linkRepository;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Records a single click for the given shorthand. Does not touch the database.
+     * @param shorthand the shorthand that was resolved
+     */
+    public void recordClick(String shorthand) {
+        pendingClicks.computeIfAbsent(shorthand, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Flushes all pending clicks to the database, in batches of at most the configured batch size.
+     * If a batch fails, its clicks are returned to the buffer and retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.clicks.flush-interval-ms:5000}")
+    public void flush() {
+        Map<String, Long> batch = new HashMap<>();
+        int flushedLinks = 0;
+
+        flushLock.lock();
+        try {
+            for (Map.Entry<String, LongAdder> entry : pendingClicks.entrySet()) {
+                long clicks = entry.getValue().sumThenReset();
+                if (clicks == 0) {
+                    continue;
+                }
+                batch.put(entry.getKey(), clicks);
+                if (batch.size() >= maxBatchSize) {
+                    flushedLinks += writeBatch(batch);
+                    batch = new HashMap<>();
+                }
+            }
+            flushedLinks += writeBatch(batch);
+        } finally {
+            flushLock.unlock();
+        }
+
+        if (flushedLinks > 0) {
+            log.debug("flush, flushed pending clicks for {} link(s)", flushedLinks);
+        }
+    }
+
+    /**
+     * Flushes any pending clicks before the application shuts down.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("flushOnShutdown, flushing pending clicks before shutdown");
+        flush();
+    }
+
+    /**
+     * Returns the number of clicks that have been recorded but not yet written to the database.
+     * @return the number of pending clicks
+     */
+    public long getPendingClickCount() {
+        return pendingClicks.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Adds the pending clicks to the persisted click total without a flush in between, so clicks moving from the
+     * buffer to the database are counted exactly once.
+     * @param persistedSum supplier of the click total persisted in the database
+     * @return the persisted total plus the pending clicks
+     */
+    public long sumWithPending(LongSupplier persistedSum) {
+        flushLock.lock();
+        try {
+            return persistedSum.getAsLong() + getPendingClickCount();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a single batch of click deltas, returning them to the buffer if the write fails.
+     * @param batch map of shorthand to click delta
+     * @return the number of links written
+     */
+    private int writeBatch(Map<String, Long> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            linkRepository.incrementClickCounts(batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.error("writeBatch, failed to flush clicks for {} link(s), will retry", batch.size(), e);
+            batch.forEach((shorthand, clicks) ->
+                    pendingClicks.computeIfAbsent(shorthand, key -> new LongAdder()).add(clicks));
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package gg.nya.tgirlclicker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * In-memory rate limiter for link creation.
+ * For every client IP, the timestamps of its most recent link creations are kept in a small ring buffer.
+ * The penalty is derived from the number of creations since the start of the previous day and the time elapsed
+ * since the newest one, exactly like the database query it replaces. A client's history is only loaded from the
+ * database when it is not yet tracked, e.g. after a restart or after the entry expired.
+ */
+@Component
+public class CreationRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(CreationRateLimiter.class);
+
+    // Array defining the penalty in minutes based on the number of recent links created by a client IP.
+    private static final int[] MINUTE_PENALTY = {0, 0, 1, 5, 10, 30, 60, 120, 240, 1440};
+
+    private final LinkRepository linkRepository;
+    private final Cache<String, CreationHistory> histories;
+
+    @Autowired
+    public CreationRateLimiter(LinkRepository linkRepository,
+                               @Value("${tgirlclicker.rate-limit.maximum-tracked-ips:100000}") long maximumTrackedIps) {
+        this.linkRepository = linkRepository;
+        // Creations older than the start of the previous day never count, so idle entries can expire after two days
+        this.histories = Caffeine.newBuilder()
+                .maximumSize(maximumTrackedIps)
+                .expireAfterAccess(Duration.ofDays(2))
+                .build();
+    }
+
+    /**
+     * Returns the duration in minutes until the client can create the next link.
+     * @param clientIp the IP address of the client
+     * @return the remaining penalty in minutes, 0 if the client can create a link immediately
+     */
+    public int getRemainingPenaltyMinutes(String clientIp) {
+        CreationHistory history = getHistory(clientIp);
+        return history.remainingPenaltyMinutes(System.currentTimeMillis(), windowStart());
+    }
+
+    /**
+     * Atomically checks the penalty of a client and, if there is none, records a new creation.
+     * @param clientIp the IP address of the client
+     * @return the remaining penalty in minutes; 0 means the creation was allowed and recorded
+     */
+    public int tryAcquire(String clientIp) {
+        CreationHistory history = getHistory(clientIp);
+        return history.tryAcquire(System.currentTimeMillis(), windowStart());
+    }
+
+    /**
+     * Atomically records up to the requested number of creations, applying the penalty to each of them as if they
+     * were requested one after another. Stops at the first creation that is under penalty.
+     * @param clientIp the IP address of the client
+     * @param count the number of creations requested
+     * @return the number of creations allowed and recorded, between 0 and count
+     */
+    public int tryAcquire(String clientIp, int count) {
+        CreationHistory history = getHistory(clientIp);
+        return history.tryAcquire(System.currentTimeMillis(), windowStart(), count);
+    }
+
+    /**
+     * Forgets the creation history of a client after a creation it was granted could not be saved, so the recorded
+     * creation is rolled back by reloading the history from the database on the next request.
+     * @param clientIp the IP address of the client
+     */
+    public void rollback(String clientIp) {
+        histories.invalidate(clientIp);
+    }
+
+    /**
+     * Forgets the creation histories of several clients, so they are reloaded from the database on their next
+     * request, e.g. after they created links through another instance.
+     * @param clientIps the IP addresses of the clients
+     */
+    public void invalidateAll(Collection<String> clientIps) {
+        histories.invalidateAll(clientIps);
+    }
+
+    /**
+     * Forgets all creation histories.
+     */
+    public void invalidateAll() {
+        histories.invalidateAll();
+    }
+
+    /**
+     * Returns the number of client IPs currently tracked.
+     * @return the estimated number of tracked IPs
+     */
+    public long getTrackedIpCount() {
+        return histories.estimatedSize();
+    }
+
+    /**
+     * Returns the creation history of a client, loading it from the database if it is not tracked yet.
+     * The history is loaded outside the cache's compute lock, so a slow query never blocks other clients hashing to
+     * the same bin, and never pins the carrier of a virtual thread. If two requests load the same history
+     * concurrently, the first one stored wins.
+     * @param clientIp the IP address of the client
+     * @return the creation history
+     */
+    private CreationHistory getHistory(String clientIp) {
+        CreationHistory history = histories.getIfPresent(clientIp);
+        if (history != null) {
+            return history;
+        }
+        CreationHistory loaded = loadHistory(clientIp);
+        return histories.get(clientIp, key -> loaded);
+    }
+
+    /**
+     * Loads the recent creation history of a client from the database.
+     * @param clientIp the IP address of the client
+     * @return the creation history
+     */
+    private CreationHistory loadHistory(String clientIp) {
+        List<Date> createdDates = linkRepository.findRecentCreationDatesByClientIp(clientIp, new Date(windowStart()));
+        log.debug("loadHistory, loaded {} recent creation(s) for client IP: {}", createdDates.size(), clientIp);
+
+        CreationHistory history = new CreationHistory();
+        // Dates are ordered newest first, so add them in reverse to keep the ring in chronological order
+        for (int i = createdDates.size() - 1; i >= 0; i--) {
+            history.add(createdDates.get(i).getTime());
+        }
+        return history;
+    }
+
+    /**
+     * Returns the start of the window in which creations count towards the penalty, the start of the previous day.
+     * Creation dates are set by {@link gg.nya.tgirlclicker.repository.Link} with the JVM clock and stored in the JVM
+     * time zone, so the window is computed with the same clock and zone both in memory and for the database query.
+     * @return the window start in epoch milliseconds
+     */
+    private static long windowStart() {
+        return LocalDate.now().minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Ring buffer of the most recent creation timestamps of a single client.
+     * Holds at most as many timestamps as there are penalty steps.
+     */
+    static final class CreationHistory {
+        private final long[] timestamps = new long[MINUTE_PENALTY.length];
+        private int size = 0;
+        private int next = 0;
+
+        /**
+         * Adds a creation timestamp, overwriting the oldest one if the ring is full.
+         * @param timestamp the creation timestamp in epoch milliseconds
+         */
+        synchronized void add(long timestamp) {
+            timestamps[next] = timestamp;
+            next = (next + 1) % timestamps.length;
+            size = Math.min(size + 1, timestamps.length);
+        }
+
+        /**
+         * Calculates the remaining penalty.
+         * @param now the current time in epoch milliseconds
+         * @param windowStart creations before this point in time are ignored
+         * @return the remaining penalty in minutes
+         */
+        synchronized int remainingPenaltyMinutes(long now, long windowStart) {
+            int count = 0;
+            long newest = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                long timestamp = timestamps[i];
+                if (timestamp >= windowStart) {
+                    count++;
+                    newest = Math.max(newest, timestamp);
+                }
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            int minutes = MINUTE_PENALTY[count - 1];
+            int elapsedMinutes = (int) ((now - newest) / 60000);
+            return Math.max(0, minutes - elapsedMinutes);
+        }
+
+        /**
+         * Records a creation if there is no remaining penalty.
+         * @param now the current time in epoch milliseconds
+         * @param windowStart creations before this point in time are ignored
+         * @return the remaining penalty in minutes, 0 if the creation was recorded
+         */
+        synchronized int tryAcquire(long now, long windowStart) {
+            int remainingMinutes = remainingPenaltyMinutes(now, windowStart);
+            if (remainingMinutes == 0) {
+                add(now);
+            }
+            return remainingMinutes;
+        }
+
+        /**
+         * Records creations one after another until one is under penalty or the requested number is reached.
+         * @param now the current time in epoch milliseconds
+         * @param windowStart creations before this point in time are ignored
+         * @param count the number of creations requested
+         * @return the number of creations recorded
+         */
+        synchronized int tryAcquire(long now, long windowStart, int count) {
+            int granted = 0;
+            while (granted < count && tryAcquire(now, windowStart) == 0) {
+                granted++;
+            }
+            return granted;
+        }
+    }
+}
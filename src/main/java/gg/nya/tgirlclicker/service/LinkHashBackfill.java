@@ -0,0 +1,74 @@
+package gg.nya.tgirlclicker.service;
+
+import gg.nya.tgirlclicker.repository.Link;
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Background job populating the URL fingerprint of links created before fingerprints existed.
+ * Each run hashes one batch of links. Once no link without a fingerprint is left, the job stops querying.
+ */
+@Component
+public class LinkHashBackfill {
+    private static final Logger log = LoggerFactory.getLogger(LinkHashBackfill.class);
+
+    private final LinkRepository linkRepository;
+    private final LinkUrlNormalizer linkUrlNormalizer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private volatile boolean complete = false;
+
+    @Autowired
+    public LinkHashBackfill(LinkRepository linkRepository, LinkUrlNormalizer linkUrlNormalizer,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${tgirlclicker.link-hash-backfill.batch-size:500}") int batchSize) {
+        this.linkRepository = linkRepository;
+        this.linkUrlNormalizer = linkUrlNormalizer;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Hashes the next batch of links without a fingerprint.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.link-hash-backfill.interval-ms:1000}", initialDelay = 10000)
+    public void backfillBatch() {
+        if (complete) {
+            return;
+        }
+
+        try {
+            List<Link> links = linkRepository.findLinksByLinkHashIsNull(PageRequest.of(0, batchSize));
+            if (links.isEmpty()) {
+                log.info("backfillBatch, all links have a fingerprint, backfill complete");
+                complete = true;
+                return;
+            }
+
+            // Only the fingerprint is updated, so click counts flushed concurrently are not overwritten
+            transactionTemplate.executeWithoutResult(status -> links.forEach(link ->
+                    linkRepository.updateLinkHash(link.getId(), linkUrlNormalizer.fingerprint(link.getLink()))));
+            log.debug("backfillBatch, populated fingerprints for {} link(s)", links.size());
+        } catch (RuntimeException e) {
+            log.error("backfillBatch, failed to populate fingerprints, will retry", e);
+        }
+    }
+
+    /**
+     * Returns whether the backfill has completed.
+     * @return true if all links have a fingerprint
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
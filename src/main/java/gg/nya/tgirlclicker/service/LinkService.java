@@ -1,16 +1,39 @@
 package gg.nya.tgirlclicker.service;
 
+import gg.nya.tgirlclicker.logging.RequestRecord;
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
 import gg.nya.tgirlclicker.repository.Link;
 import gg.nya.tgirlclicker.repository.LinkRepository;
+import gg.nya.tgirlclicker.service.clicklog.ClickEventLog;
+import gg.nya.tgirlclicker.service.coordination.ClusterCoordinator;
+import gg.nya.tgirlclicker.service.index.ShorthandIndex;
+import gg.nya.tgirlclicker.service.model.BulkCreationResult;
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
+import gg.nya.tgirlclicker.service.shorthand.ShorthandAllocator;
+import gg.nya.tgirlclicker.service.trending.TrendingLink;
+import gg.nya.tgirlclicker.service.trending.TrendingLinks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
- import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service class for managing links.
@@ -20,36 +43,133 @@ import java.util.Optional;
 public class LinkService {
     private static final Logger log = LoggerFactory.getLogger(LinkService.class.getName());
 
-    // Array defining the penalty in minutes based on the number of recent links created by a client IP.
-    private final int[] minutePenalty = {0, 0, 1, 5, 10, 30, 60, 120, 240, 1440};
-
     private final LinkRepository linkRepository;
+    private final ClickCountBuffer clickCountBuffer;
+    private final ShorthandCache shorthandCache;
+    private final TotalClickCounter totalClickCounter;
+    private final ShorthandAllocator shorthandAllocator;
+    private final CreationRateLimiter creationRateLimiter;
+    private final LinkUrlNormalizer linkUrlNormalizer;
+    private final LinkMetrics linkMetrics;
+    private final ShorthandIndex shorthandIndex;
+    private final ClickEventLog clickEventLog;
+    private final TrendingLinks trendingLinks;
+    private final ClusterCoordinator clusterCoordinator;
+    private final Duration fallbackTimeout;
+    private final Executor fallbackExecutor = task -> Thread.ofVirtual().name("shorthand-fallback").start(task);
 
     @Autowired
-    public LinkService(LinkRepository linkRepository) {
+    public LinkService(LinkRepository linkRepository, ClickCountBuffer clickCountBuffer,
+                       ShorthandCache shorthandCache, TotalClickCounter totalClickCounter,
+                       ShorthandAllocator shorthandAllocator, CreationRateLimiter creationRateLimiter,
+                       LinkUrlNormalizer linkUrlNormalizer, LinkMetrics linkMetrics, ShorthandIndex shorthandIndex,
+                       ClickEventLog clickEventLog, TrendingLinks trendingLinks,
+                       ClusterCoordinator clusterCoordinator,
+                       @Value("${tgirlclicker.shorthand-index.fallback-timeout:PT1S}") Duration fallbackTimeout) {
         this.linkRepository = linkRepository;
+        this.clickCountBuffer = clickCountBuffer;
+        this.shorthandCache = shorthandCache;
+        this.totalClickCounter = totalClickCounter;
+        this.shorthandAllocator = shorthandAllocator;
+        this.creationRateLimiter = creationRateLimiter;
+        this.linkUrlNormalizer = linkUrlNormalizer;
+        this.linkMetrics = linkMetrics;
+        this.shorthandIndex = shorthandIndex;
+        this.clickEventLog = clickEventLog;
+        this.trendingLinks = trendingLinks;
+        this.clusterCoordinator = clusterCoordinator;
+        this.fallbackTimeout = fallbackTimeout;
     }
 
     /**
      * Retrieves a link by its shorthand and increments its click count if found.
+     * Resolution goes through the {@link ShorthandIndex} first and falls back to the {@link ShorthandCache} and the
+     * database. If the database is unreachable, shorthands missing from the loaded index are treated as not found.
+     * The click is recorded in the {@link ClickCountBuffer} and written to the database asynchronously, appended
+     * to the {@link ClickEventLog} and, unless the link is in alternative mode, counted by {@link TrendingLinks}.
      * @param shorthand the shorthand of the link to retrieve
-     * @return an Optional containing the Link if found, or empty if not found
+     * @param clientIp the IP address of the client
+     * @param userAgent the user agent of the client
+     * @return an Optional containing the resolved link if found, or empty if not found
      */
-    @CacheEvict(value = "totalClickCount", allEntries = true)
-    public Optional<Link> retrieveAndIncrementClickCount(String shorthand) {
+    public Optional<ResolvedLink> retrieveAndIncrementClickCount(String shorthand, String clientIp, String userAgent) {
         log.debug("retrieveAndIncrementClickCount, searching for shorthand: {}", shorthand);
 
-        Optional<Link> linkOpt = linkRepository.findLinkByShorthand(shorthand);
+        Optional<ResolvedLink> linkOpt = resolve(shorthand);
+        RequestRecord.recordResolution(shorthand, linkOpt.isPresent(),
+                linkOpt.isPresent() && linkOpt.get().alternativeMode());
+        linkMetrics.recordResolution(linkOpt.isPresent());
         if (linkOpt.isPresent()) {
-            Link link = linkOpt.get();
-            link.setClickCount(link.getClickCount() + 1);
-            linkRepository.save(link);
-            log.debug("retrieveAndIncrementClickCount, found link: {}, new click count: {}", link.getShorthand(),
-                    link.getClickCount());
+            clickCountBuffer.recordClick(shorthand);
+            totalClickCounter.increment();
+            clickEventLog.record(shorthand, clientIp, userAgent);
+            // Alternative mode links are kept out of the public ranking
+            if (!linkOpt.get().alternativeMode()) {
+                trendingLinks.record(shorthand, clientIp);
+            }
+            log.debug("retrieveAndIncrementClickCount, found link: {}, click recorded", linkOpt.get().shorthand());
         }
         return linkOpt;
     }
 
+    /**
+     * Resolves a shorthand from the index, or from the cache and the database if it is not indexed.
+     * Links loaded from the database are added to the index. While the index is loaded, database lookups are
+     * abandoned after the fallback timeout, so an index miss does not wait for the connection timeout of the pool
+     * when the database is unreachable.
+     * @param shorthand the shorthand to resolve
+     * @return an Optional containing the resolved link if found, or empty if not found
+     */
+    private Optional<ResolvedLink> resolve(String shorthand) {
+        ResolvedLink indexed = shorthandIndex.resolve(shorthand);
+        if (indexed != null) {
+            RequestRecord.recordCacheHit(true);
+            return Optional.of(indexed);
+        }
+
+        try {
+            return shorthandCache.resolve(shorthand, key -> shorthandIndex.isLoaded()
+                    ? loadWithTimeout(key)
+                    : load(key));
+        } catch (DataAccessException e) {
+            if (!shorthandIndex.isLoaded()) {
+                throw e;
+            }
+            log.warn("retrieveAndIncrementClickCount, database unavailable, serving from the shorthand index only: {}",
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<ResolvedLink> load(String shorthand) {
+        Optional<ResolvedLink> loaded = linkRepository.findTargetByShorthand(shorthand).map(ResolvedLink::of);
+        loaded.ifPresent(link -> shorthandIndex.add(0, link));
+        return loaded;
+    }
+
+    /**
+     * Loads a shorthand from the database on another thread, waiting at most for the fallback timeout. An abandoned
+     * lookup still completes in the background and adds a found link to the index.
+     * @throws QueryTimeoutException if the lookup did not complete in time
+     */
+    private Optional<ResolvedLink> loadWithTimeout(String shorthand) {
+        CompletableFuture<Optional<ResolvedLink>> lookup = CompletableFuture.supplyAsync(() -> load(shorthand),
+                fallbackExecutor);
+        try {
+            return lookup.get(fallbackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Shorthand lookup did not complete within " + fallbackTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for the shorthand lookup");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shorthand lookup failed", e.getCause());
+        }
+    }
+
     /**
      * Creates a new link or finds an existing one based on the provided link and alternative mode.
      * @param link the link to be created or found
@@ -63,10 +183,13 @@ public class LinkService {
         log.debug("createLink, link: {}, alternativeMode: {}, clientIp: {}, userAgent: {}", link, alternativeMode,
                 clientIp, userAgent);
 
-        Optional<Link> existingLink = linkRepository.findLinkByLinkAndAlternativeMode(link, alternativeMode);
+        String normalizedLink = linkUrlNormalizer.normalize(link);
+        long linkHash = linkUrlNormalizer.hash(normalizedLink);
+        Optional<Link> existingLink = findExistingLink(link, normalizedLink, linkHash, alternativeMode);
         if (existingLink.isPresent()) {
             log.debug("createLink, link already exists: {} (alt: {}) -> {}, returning", link, alternativeMode,
                     existingLink.get().getShorthand());
+            shorthandCache.put(ResolvedLink.of(existingLink.get()));
             return existingLink;
         }
 
@@ -78,83 +201,187 @@ public class LinkService {
             return Optional.empty();
         }
 
-        String shorthand = generateUniqueShorthand();
+        String shorthand = shorthandAllocator.allocate();
         Link newLink = new Link(link, alternativeMode, shorthand, clientIp, userAgent);
-        linkRepository.save(newLink);
+        newLink.setLinkHash(linkHash);
+        try {
+            linkRepository.save(newLink);
+        } catch (RuntimeException e) {
+            creationRateLimiter.rollback(clientIp);
+            throw e;
+        }
+        publishNewLink(newLink);
+        clusterCoordinator.publishPenaltyChanged(clientIp);
 
         log.debug("createLink, new link created: {} (alt: {}) -> {}, returning", link, alternativeMode, shorthand);
         return Optional.of(newLink);
     }
 
     /**
-     * Returns the total number of clicks across all links.
-     * @return the total click count
+     * Creates new links or finds existing ones for many destinations at once.
+     * Destinations are deduplicated by their normalized form, both within the batch and against existing links,
+     * which are looked up in a single query. The penalty rules apply to every new link as if they were created one
+     * after another, so destinations beyond the first link under penalty are rejected. The new links are inserted
+     * in batched statements.
+     * @param links the links to be created or found
+     * @param alternativeMode indicates if the links should be created in alternative mode
+     * @param clientIp the IP address of the client creating the links
+     * @param userAgent the user agent of the client creating the links
+     * @return the created or existing links and the rejected destinations
      */
-    @Cacheable(value = "totalClickCount", cacheManager = "cacheManager")
-    public int getTotalClickCount() {
-        log.debug("getTotalClickCount, retrieving total click count from repository");
+    public BulkCreationResult createOrFindLinks(List<String> links, boolean alternativeMode, String clientIp,
+                                                String userAgent) {
+        log.debug("createLinks, {} link(s), alternativeMode: {}, clientIp: {}, userAgent: {}", links.size(),
+                alternativeMode, clientIp, userAgent);
 
-        int totalClickCount = linkRepository.sumClickCount();
-        log.debug("getTotalClickCount, returning total click count: {}", totalClickCount);
-        return totalClickCount;
-    }
+        // Deduplicate by normalized destination, keeping the submission order and the first submitted form of each
+        Map<String, String> normalizedBySubmitted = new LinkedHashMap<>();
+        Map<String, Long> hashByNormalized = new LinkedHashMap<>();
+        Map<String, String> submittedByNormalized = new HashMap<>();
+        for (String link : links) {
+            String normalizedLink = linkUrlNormalizer.normalize(link);
+            normalizedBySubmitted.putIfAbsent(link, normalizedLink);
+            hashByNormalized.computeIfAbsent(normalizedLink, linkUrlNormalizer::hash);
+            submittedByNormalized.putIfAbsent(normalizedLink, link);
+        }
 
-    /**
-     * Based on the client IP, returns the duration in minutes until the next link can be created.
-     * @param clientIp the IP address of the client
-     * @return the duration in minutes until the next link can be created.
-     * 0 means the client can create a link immediately.
-     */
-    private int getNextLinkDurationMinutes(String clientIp) {
-        log.debug("getNextLinkDurationMinutes, checking next link duration for client IP: {}", clientIp);
+        // Candidates sharing a fingerprint with a different destination are never looked up below
+        Map<String, Link> linkByNormalized = new HashMap<>();
+        Set<String> destinations = new HashSet<>(normalizedBySubmitted.keySet());
+        destinations.addAll(hashByNormalized.keySet());
+        for (Link candidate : linkRepository.findCandidateLinksIn(hashByNormalized.values(), destinations,
+                alternativeMode)) {
+            linkByNormalized.putIfAbsent(linkUrlNormalizer.normalize(candidate.getLink()), candidate);
+        }
+        List<String> missing = new ArrayList<>();
+        for (String normalizedLink : hashByNormalized.keySet()) {
+            Link existingLink = linkByNormalized.get(normalizedLink);
+            if (existingLink != null) {
+                shorthandCache.put(ResolvedLink.of(existingLink));
+            } else {
+                missing.add(normalizedLink);
+            }
+        }
 
-        List<Link> createdLinks = linkRepository.findRecentLinksByClientIp(clientIp);
-        log.debug("getNextLinkDurationMinutes, found {} recent links created by client IP: {}",
-                createdLinks.size(), clientIp);
+        int granted = missing.isEmpty() ? 0 : creationRateLimiter.tryAcquire(clientIp, missing.size());
+        int penaltyMinutes = 0;
+        if (granted < missing.size()) {
+            linkMetrics.recordRateLimitRejection();
+            penaltyMinutes = creationRateLimiter.getRemainingPenaltyMinutes(clientIp);
+            log.warn("createLinks, client IP {} is under penalty, rejecting {} of {} new link(s) for {} minutes",
+                    clientIp, missing.size() - granted, missing.size(), penaltyMinutes);
+        }
 
-        if(createdLinks.isEmpty()) {
-            log.debug("getNextLinkDurationMinutes, no recent links found for client IP: {}, returning 0",
-                      clientIp);
-            return 0;
+        List<Link> newLinks = new ArrayList<>(granted);
+        for (String normalizedLink : missing.subList(0, granted)) {
+            Link newLink = new Link(submittedByNormalized.get(normalizedLink), alternativeMode,
+                    shorthandAllocator.allocate(), clientIp, userAgent);
+            newLink.setLinkHash(hashByNormalized.get(normalizedLink));
+            newLinks.add(newLink);
+            linkByNormalized.put(normalizedLink, newLink);
+        }
+        if (!newLinks.isEmpty()) {
+            try {
+                linkRepository.saveAll(newLinks);
+            } catch (RuntimeException e) {
+                creationRateLimiter.rollback(clientIp);
+                throw e;
+            }
+            newLinks.forEach(this::publishNewLink);
+            clusterCoordinator.publishPenaltyChanged(clientIp);
         }
 
-        int minutes = minutePenalty[createdLinks.size() - 1];
-        int elapsedMinutes =
-                (int) ((System.currentTimeMillis() - createdLinks.getFirst().getCreatedDate().getTime()) / 60000);
-        int remainingMinutes = Math.max(0, minutes - elapsedMinutes);
+        Map<String, Link> result = new LinkedHashMap<>();
+        List<String> rejected = new ArrayList<>();
+        normalizedBySubmitted.forEach((link, normalizedLink) -> {
+            Link resolved = linkByNormalized.get(normalizedLink);
+            if (resolved != null) {
+                result.put(link, resolved);
+            } else {
+                rejected.add(link);
+            }
+        });
 
-        log.debug("getNextLinkDurationMinutes, calculated remaining penalty: {} (total: {}, elapsed: {})",
-                  remainingMinutes, minutes, elapsedMinutes);
-        return remainingMinutes;
+        log.debug("createLinks, {} new link(s) created, {} existing, {} rejected", newLinks.size(),
+                hashByNormalized.size() - missing.size(), rejected.size());
+        return new BulkCreationResult(result, rejected, penaltyMinutes);
+    }
+
+    /**
+     * Makes a newly saved link resolvable from the cache and the shorthand index, and tells the other instances
+     * to drop a negative cache entry they may hold for its shorthand.
+     * @param newLink the saved link
+     */
+    private void publishNewLink(Link newLink) {
+        ResolvedLink resolvedLink = ResolvedLink.of(newLink);
+        shorthandCache.put(resolvedLink);
+        shorthandIndex.add(newLink.getId(), resolvedLink);
+        clusterCoordinator.publishLinkChanged(newLink.getShorthand());
+    }
+
+    /**
+     * Finds an existing link with the same normalized destination and alternative mode.
+     * Candidates are looked up by fingerprint and compared by their full normalized destination to rule out
+     * fingerprint collisions. Links not backfilled with a fingerprint yet are found by the submitted or normalized
+     * destination.
+     * @param link the submitted destination
+     * @param normalizedLink the normalized destination
+     * @param linkHash the fingerprint of the normalized destination
+     * @param alternativeMode whether the link is in alternative mode
+     * @return an Optional containing the existing Link, or empty if there is none
+     */
+    private Optional<Link> findExistingLink(String link, String normalizedLink, long linkHash,
+                                            boolean alternativeMode) {
+        Set<String> destinations = new HashSet<>(List.of(link, normalizedLink));
+        return linkRepository.findCandidateLinks(linkHash, destinations, alternativeMode).stream()
+                .filter(candidate -> normalizedLink.equals(linkUrlNormalizer.normalize(candidate.getLink())))
+                .findFirst();
+    }
+
+    /**
+     * Returns the links with the most recent clicks.
+     * @param limit the maximum number of links to return
+     * @return the trending links, most popular first
+     */
+    public List<TrendingLink> getTrendingLinks(int limit) {
+        return trendingLinks.getTop(limit);
+    }
 
+    /**
+     * Returns the total number of clicks across all links.
+     * The value is served from the in-memory {@link TotalClickCounter} and never queries the database.
+     * @return the total click count
+     */
+    public long getTotalClickCount() {
+        long totalClickCount = totalClickCounter.get();
+        log.debug("getTotalClickCount, returning total click count: {}", totalClickCount);
+        return totalClickCount;
     }
 
     /**
-     * Generates a unique shorthand for a new link.
-     * @return a unique shorthand string
+     * Returns the duration in minutes until the client can create the next link, without recording a creation.
+     * @param clientIp the IP address of the client
+     * @return the remaining penalty in minutes, 0 if the client can create a link immediately
      */
-    private String generateUniqueShorthand() {
-        log.debug("generateUniqueShorthand, generating unique shorthand for new link");
-
-        String shorthand;
-        int attempts = 0;
-        do {
-            shorthand = generateRandomShorthand((attempts / 100) + 4);
-            attempts++;
-        } while (linkRepository.existsByShorthand(shorthand));
-        log.debug("generateUniqueShorthand, generated unique shorthand {} after {} attempt(s)", shorthand, attempts);
-        return shorthand;
+    public int getRemainingPenaltyMinutes(String clientIp) {
+        return creationRateLimiter.getRemainingPenaltyMinutes(clientIp);
     }
 
     /**
-     * Generates a random shorthand of the specified length.
-     * @param length the length of the shorthand to generate, must be between 4 and 8 characters
-     * @return a random shorthand string of the specified length
+     * Based on the client IP, returns the duration in minutes until the next link can be created.
+     * If the client can create a link immediately, the creation is recorded with the {@link CreationRateLimiter}.
+     * @param clientIp the IP address of the client
+     * @return the duration in minutes until the next link can be created.
+     * 0 means the client can create a link immediately.
      */
-    private String generateRandomShorthand(int length) {
-        if (length > 8) {
-            throw new IllegalArgumentException("Shorthand length must not exceed 8 characters.");
+    private int getNextLinkDurationMinutes(String clientIp) {
+        log.debug("getNextLinkDurationMinutes, checking next link duration for client IP: {}", clientIp);
+
+        int remainingMinutes = creationRateLimiter.tryAcquire(clientIp);
+        if (remainingMinutes > 0) {
+            linkMetrics.recordRateLimitRejection();
         }
-        return java.util.UUID.randomUUID().toString().substring(0, length);
+        log.debug("getNextLinkDurationMinutes, calculated remaining penalty: {}", remainingMinutes);
+        return remainingMinutes;
     }
 }
@@ -0,0 +1,107 @@
+package gg.nya.tgirlclicker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Normalizes destination URLs and computes their fingerprint for duplicate detection.
+ * The fingerprint is the first 8 bytes of the SHA-256 hash of the normalized URL. Changing the normalization
+ * settings changes the fingerprints, so existing rows should be re-hashed afterwards.
+ */
+@Component
+public class LinkUrlNormalizer {
+
+    private final boolean lowercaseSchemeAndHost;
+    private final boolean stripDefaultPort;
+    private final boolean stripTrailingSlash;
+
+    public LinkUrlNormalizer(@Value("${tgirlclicker.link-normalization.lowercase-scheme-and-host:true}")
+                             boolean lowercaseSchemeAndHost,
+                             @Value("${tgirlclicker.link-normalization.strip-default-port:true}")
+                             boolean stripDefaultPort,
+                             @Value("${tgirlclicker.link-normalization.strip-trailing-slash:true}")
+                             boolean stripTrailingSlash) {
+        this.lowercaseSchemeAndHost = lowercaseSchemeAndHost;
+        this.stripDefaultPort = stripDefaultPort;
+        this.stripTrailingSlash = stripTrailingSlash;
+    }
+
+    /**
+     * Normalizes a URL according to the configured rules.
+     * URLs that cannot be parsed are returned unchanged.
+     * @param link the URL to normalize
+     * @return the normalized URL
+     */
+    public String normalize(String link) {
+        URI uri;
+        try {
+            uri = new URI(link);
+        } catch (URISyntaxException e) {
+            return link;
+        }
+        if (uri.isOpaque() || uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return link;
+        }
+
+        String scheme = uri.getScheme();
+        String authority = uri.getRawAuthority();
+        if (lowercaseSchemeAndHost) {
+            scheme = scheme.toLowerCase(Locale.ROOT);
+            // Only the host is case-insensitive, user info must be kept as is
+            int at = authority.lastIndexOf('@');
+            authority = authority.substring(0, at + 1) + authority.substring(at + 1).toLowerCase(Locale.ROOT);
+        }
+        if (stripDefaultPort) {
+            int port = uri.getPort();
+            if ((port == 80 && "http".equalsIgnoreCase(scheme)) || (port == 443 && "https".equalsIgnoreCase(scheme))) {
+                authority = authority.substring(0, authority.lastIndexOf(':'));
+            }
+        }
+
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        if (stripTrailingSlash && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        StringBuilder normalized = new StringBuilder(link.length())
+                .append(scheme).append("://").append(authority).append(path);
+        if (uri.getRawQuery() != null) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        if (uri.getRawFragment() != null) {
+            normalized.append('#').append(uri.getRawFragment());
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Computes the fingerprint of a URL that has already been normalized.
+     * @param normalizedLink the normalized URL
+     * @return the fingerprint
+     */
+    public long hash(String normalizedLink) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalizedLink.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Normalizes a URL and computes its fingerprint.
+     * @param link the URL
+     * @return the fingerprint of the normalized URL
+     */
+    public long fingerprint(String link) {
+        return hash(normalize(link));
+    }
+}
@@ -0,0 +1,153 @@
+package gg.nya.tgirlclicker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import gg.nya.tgirlclicker.logging.RequestRecord;
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for shorthand resolution.
+ * Resolved shorthands are kept in a bounded cache, while shorthands that could not be resolved are kept in a
+ * separate negative cache with a short TTL, so repeated requests for unknown shorthands do not reach the database.
+ */
+@Component
+public class ShorthandCache {
+    private static final Logger log = LoggerFactory.getLogger(ShorthandCache.class);
+
+    private final Cache<String, ResolvedLink> resolvedLinks;
+    private final Cache<String, Boolean> missingShorthands;
+
+    public ShorthandCache(@Value("${tgirlclicker.resolve-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${tgirlclicker.resolve-cache.ttl:PT1H}") Duration ttl,
+                          @Value("${tgirlclicker.resolve-cache.negative-maximum-size:10000}") long negativeMaximumSize,
+                          @Value("${tgirlclicker.resolve-cache.negative-ttl:PT30S}") Duration negativeTtl) {
+        this.resolvedLinks = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.missingShorthands = Caffeine.newBuilder()
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Resolves a shorthand, consulting the loader only if the shorthand is neither cached nor known to be missing.
+     * @param shorthand the shorthand to resolve
+     * @param loader function loading the link from the database
+     * @return an Optional containing the resolved link, or empty if the shorthand does not exist
+     */
+    public Optional<ResolvedLink> resolve(String shorthand, Function<String, Optional<ResolvedLink>> loader) {
+        ResolvedLink cached = resolvedLinks.getIfPresent(shorthand);
+        if (cached != null) {
+            RequestRecord.recordCacheHit(true);
+            return Optional.of(cached);
+        }
+        if (missingShorthands.getIfPresent(shorthand) != null) {
+            RequestRecord.recordCacheHit(true);
+            return Optional.empty();
+        }
+        RequestRecord.recordCacheHit(false);
+
+        Optional<ResolvedLink> loaded = loader.apply(shorthand);
+        if (loaded.isPresent()) {
+            resolvedLinks.put(shorthand, loaded.get());
+        } else {
+            missingShorthands.put(shorthand, Boolean.TRUE);
+        }
+        return loaded;
+    }
+
+    /**
+     * Stores a freshly created or found link, clearing any negative entry for its shorthand.
+     * @param link the link to store
+     */
+    public void put(ResolvedLink link) {
+        missingShorthands.invalidate(link.shorthand());
+        resolvedLinks.put(link.shorthand(), link);
+    }
+
+    /**
+     * Removes a shorthand from both the positive and the negative cache.
+     * @param shorthand the shorthand to invalidate
+     */
+    public void invalidate(String shorthand) {
+        resolvedLinks.invalidate(shorthand);
+        missingShorthands.invalidate(shorthand);
+    }
+
+    /**
+     * Removes several shorthands from both the positive and the negative cache.
+     * @param shorthands the shorthands to invalidate
+     */
+    public void invalidateAll(Collection<String> shorthands) {
+        resolvedLinks.invalidateAll(shorthands);
+        missingShorthands.invalidateAll(shorthands);
+    }
+
+    /**
+     * Clears both the positive and the negative cache.
+     */
+    public void invalidateAll() {
+        resolvedLinks.invalidateAll();
+        missingShorthands.invalidateAll();
+    }
+
+    /**
+     * Returns the statistics of the cache of resolved links.
+     * @return hit, miss and eviction statistics
+     */
+    public CacheStats getStats() {
+        return resolvedLinks.stats();
+    }
+
+    /**
+     * Returns the statistics of the negative cache.
+     * @return hit, miss and eviction statistics
+     */
+    public CacheStats getNegativeStats() {
+        return missingShorthands.stats();
+    }
+
+    /**
+     * Returns the underlying cache of resolved links, e.g. for binding metrics.
+     * @return the cache of resolved links
+     */
+    public Cache<String, ResolvedLink> getResolvedLinks() {
+        return resolvedLinks;
+    }
+
+    /**
+     * Returns the underlying negative cache, e.g. for binding metrics.
+     * @return the negative cache
+     */
+    public Cache<String, Boolean> getMissingShorthands() {
+        return missingShorthands;
+    }
+
+    /**
+     * Periodically logs the cache statistics.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.resolve-cache.stats-interval-ms:300000}")
+    public void logStats() {
+        CacheStats stats = getStats();
+        CacheStats negativeStats = getNegativeStats();
+        log.info("logStats, resolve cache size: {}, hits: {}, misses: {}, evictions: {}; " +
+                        "negative cache size: {}, hits: {}, evictions: {}",
+                resolvedLinks.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                missingShorthands.estimatedSize(), negativeStats.hitCount(), negativeStats.evictionCount());
+    }
+}
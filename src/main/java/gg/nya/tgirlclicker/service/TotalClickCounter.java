@@ -0,0 +1,72 @@
+package gg.nya.tgirlclicker.service;
+
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running total of clicks across all links.
+ * The total is seeded from the database once at startup, incremented in memory on every resolved redirect and
+ * periodically reconciled with the database in the background, so serving it never requires a full-table aggregate.
+ */
+@Component
+public class TotalClickCounter {
+    private static final Logger log = LoggerFactory.getLogger(TotalClickCounter.class);
+
+    private final AtomicLong totalClickCount = new AtomicLong();
+    private final LinkRepository linkRepository;
+    private final ClickCountBuffer clickCountBuffer;
+
+    @Autowired
+    public TotalClickCounter(LinkRepository linkRepository, ClickCountBuffer clickCountBuffer) {
+        this.linkRepository = linkRepository;
+        this.clickCountBuffer = clickCountBuffer;
+    }
+
+    /**
+     * Seeds the running total from the database once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        log.info("seed, seeding total click count from the database");
+        reconcile();
+    }
+
+    /**
+     * Increments the running total by one click.
+     */
+    public void increment() {
+        totalClickCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the current running total.
+     * @return the total click count
+     */
+    public long get() {
+        return totalClickCount.get();
+    }
+
+    /**
+     * Reconciles the running total with the database. Clicks that are still pending in the
+     * {@link ClickCountBuffer} are added on top of the persisted sum, read under its flush lock.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.total-clicks.reconcile-interval-ms:600000}",
+            initialDelayString = "${tgirlclicker.total-clicks.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            long reconciled = clickCountBuffer.sumWithPending(linkRepository::sumClickCount);
+            long previous = totalClickCount.getAndSet(reconciled);
+            log.debug("reconcile, total click count reconciled from {} to {}", previous, reconciled);
+        } catch (RuntimeException e) {
+            log.error("reconcile, failed to reconcile total click count, keeping {}", totalClickCount.get(), e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package gg.nya.tgirlclicker.service.clicklog;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single resolved redirect as stored in the click event log.
+ * Events are stored as fixed size little-endian records of {@link #SIZE} bytes.
+ *
+ * @param shorthand    the {@link gg.nya.tgirlclicker.service.shorthand.PackedShorthand packed} shorthand
+ * @param timestamp    the time of the click in epoch milliseconds
+ * @param clientIpHash keyed hash of the client IP address
+ * @param userAgentId  hash of the user agent string
+ */
+record ClickEvent(long shorthand, long timestamp, long clientIpHash, int userAgentId) {
+
+    static final int SIZE = 28;
+
+    /**
+     * Writes the event at the current position of the buffer.
+     * @param buffer the buffer to write to, must be little-endian
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(shorthand);
+        buffer.putLong(timestamp);
+        buffer.putLong(clientIpHash);
+        buffer.putInt(userAgentId);
+    }
+
+    /**
+     * Reads an event at the current position of the buffer.
+     * @param buffer the buffer to read from, must be little-endian
+     * @return the event
+     */
+    static ClickEvent readFrom(ByteBuffer buffer) {
+        return new ClickEvent(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+    }
+}
@@ -0,0 +1,319 @@
+package gg.nya.tgirlclicker.service.clicklog;
+
+import gg.nya.tgirlclicker.service.shorthand.PackedShorthand;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of resolved redirects, written to local segment files.
+ * <p>
+ * Recording a click only enqueues it into a bounded queue, a single writer thread drains the queue in batches, hashes
+ * the client IP and appends fixed size {@link ClickEvent} records to the active segment. The active segment is rolled
+ * over once it reaches the maximum size or age, completed segments are compacted into hourly rollups by the
+ * {@link ClickRollupJob}. If the queue is full, clicks are dropped and counted rather than blocking the request.
+ * <p>
+ * Client IPs are hashed with a key computed as the HMAC of a distinct label under the configured key, so the hashes
+ * are unrelated to other values derived from the same secret, such as the shorthands when the IP hash key falls back
+ * to the shorthand key.
+ * <p>
+ * Each segment starts with a magic number and version. A segment left active by a crash is completed on the next
+ * start, with any partially written trailing record ignored when it is read.
+ */
+@Component
+public class ClickEventLog {
+    private static final Logger log = LoggerFactory.getLogger(ClickEventLog.class);
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String ACTIVE_SUFFIX = ".active";
+    static final int MAGIC = 0x5447434C;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    private static final String IP_HASH_KEY_LABEL = "tgirlclicker-ip-hash-key";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final int batchSize;
+    private final ArrayBlockingQueue<PendingClick> queue;
+    private final LongAdder droppedClicks = new LongAdder();
+    private final SecretKeySpec ipHashKey;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    // Only accessed by the writer thread
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentBytes;
+    private long segmentOpenedAt;
+
+    @Autowired
+    public ClickEventLog(@Value("${tgirlclicker.click-log.enabled:true}") boolean enabled,
+                         @Value("${tgirlclicker.click-log.directory:data/clicks}") Path directory,
+                         @Value("${tgirlclicker.click-log.max-segment-bytes:67108864}") long maxSegmentBytes,
+                         @Value("${tgirlclicker.click-log.max-segment-age:PT1H}") Duration maxSegmentAge,
+                         @Value("${tgirlclicker.click-log.batch-size:1024}") int batchSize,
+                         @Value("${tgirlclicker.click-log.queue-size:65536}") int queueSize,
+                         @Value("${tgirlclicker.click-log.ip-hash-key:${tgirlclicker.shorthand.key}}")
+                         String ipHashKey) {
+        if (batchSize < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Click log batch and queue size must be at least 1.");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAge.toMillis();
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.ipHashKey = deriveIpHashKey(ipHashKey);
+    }
+
+    /**
+     * Completes segments left active by a previous run and starts the writer thread.
+     * @throws IOException if the log directory cannot be prepared
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            log.info("start, click event log is disabled");
+            return;
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path active : files.filter(file -> file.toString().endsWith(ACTIVE_SUFFIX)).toList()) {
+                log.warn("start, completing click log segment {} left active by a previous run", active);
+                complete(active);
+            }
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "click-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records a click. Never blocks and never touches the disk.
+     * @param shorthand the resolved shorthand
+     * @param clientIp the IP address of the client, may be null
+     * @param userAgent the user agent of the client, may be null
+     */
+    public void record(String shorthand, String clientIp, String userAgent) {
+        if (!running) {
+            return;
+        }
+        if (!queue.offer(new PendingClick(shorthand, System.currentTimeMillis(), clientIp, userAgent))) {
+            droppedClicks.increment();
+        }
+    }
+
+    /**
+     * Returns the completed segments, oldest first.
+     * @return the paths of all completed segments
+     * @throws IOException if the log directory cannot be listed
+     */
+    public List<Path> completedSegments() throws IOException {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    /**
+     * Returns the number of clicks waiting to be written.
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of clicks dropped because the queue was full.
+     * @return the number of dropped clicks
+     */
+    public long getDroppedClicks() {
+        return droppedClicks.sum();
+    }
+
+    /**
+     * Stops the writer thread once it has written all queued clicks, and completes the active segment.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            // Not interrupted, as an interrupt during a write would close the segment channel
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("stop, click log writer did not finish within 10 seconds, {} click(s) are lost", queue.size());
+        }
+    }
+
+    /**
+     * Writer loop draining the queue in batches until the log is stopped and the queue is empty.
+     */
+    private void writeLoop() {
+        Mac ipHasher = newIpHasher();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(batchSize * ClickEvent.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        List<PendingClick> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingClick first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    buffer.clear();
+                    for (PendingClick click : batch) {
+                        click.toEvent(ipHasher).writeTo(buffer);
+                    }
+                    buffer.flip();
+                    write(buffer);
+                }
+                if (segment != null && (segmentBytes >= maxSegmentBytes
+                        || System.currentTimeMillis() - segmentOpenedAt >= maxSegmentAgeMillis)) {
+                    closeSegment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                log.warn("writeLoop, failed to write {} click(s) to the click log", batch.size(), e);
+                closeSegmentQuietly();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSegmentQuietly();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        if (segment == null) {
+            openSegment();
+        }
+        while (buffer.hasRemaining()) {
+            segmentBytes += segment.write(buffer);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentOpenedAt = System.currentTimeMillis();
+        String name = String.format("clicks-%013d-%08x", segmentOpenedAt, ThreadLocalRandom.current().nextInt());
+        segmentPath = directory.resolve(name + ACTIVE_SUFFIX);
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segmentBytes = HEADER_SIZE;
+        log.debug("openSegment, opened click log segment {}", segmentPath);
+    }
+
+    private void closeSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        segment = null;
+        complete(segmentPath);
+        log.debug("closeSegment, completed click log segment {} with {} bytes", segmentPath, segmentBytes);
+    }
+
+    private void closeSegmentQuietly() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.warn("closeSegmentQuietly, failed to complete click log segment {}", segmentPath, e);
+            segment = null;
+        }
+    }
+
+    /**
+     * Marks an active segment as completed, so it is picked up by the rollup job.
+     */
+    private static void complete(Path active) throws IOException {
+        String name = active.getFileName().toString();
+        Path completed = active.resolveSibling(name.substring(0, name.length() - ACTIVE_SUFFIX.length())
+                + SEGMENT_SUFFIX);
+        Files.move(active, completed, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Computes the IP hash key as the HMAC of {@link #IP_HASH_KEY_LABEL} under the configured key.
+     */
+    private static SecretKeySpec deriveIpHashKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Click log IP hash key must not be blank.");
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(IP_HASH_KEY_LABEL.getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private Mac newIpHasher() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(ipHashKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * A click waiting in the queue. Hashing is left to the writer thread, off the request path.
+     */
+    private record PendingClick(String shorthand, long timestamp, String clientIp, String userAgent) {
+
+        ClickEvent toEvent(Mac ipHasher) {
+            long clientIpHash = 0;
+            if (clientIp != null) {
+                clientIpHash = ByteBuffer.wrap(ipHasher.doFinal(clientIp.getBytes(StandardCharsets.UTF_8))).getLong();
+            }
+            int userAgentId = userAgent == null ? 0 : userAgent.hashCode();
+            return new ClickEvent(PackedShorthand.pack(shorthand), timestamp, clientIpHash, userAgentId);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package gg.nya.tgirlclicker.service.clicklog;
+
+import gg.nya.tgirlclicker.repository.ClickRollupRepository;
+import gg.nya.tgirlclicker.service.shorthand.PackedShorthand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compacts completed click log segments into hourly click rollups per link.
+ * Each segment is aggregated in memory and saved in a single transaction that also records the segment as compacted,
+ * then deleted. A segment that was saved but not deleted, e.g. due to a crash, is recognized and only deleted.
+ * A file that is not a segment of the current version is renamed with the {@link #QUARANTINE_SUFFIX}, so it is
+ * kept for inspection but not picked up again.
+ */
+@Component
+public class ClickRollupJob {
+    private static final Logger log = LoggerFactory.getLogger(ClickRollupJob.class);
+
+    static final String QUARANTINE_SUFFIX = ".quarantined";
+
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final ClickEventLog clickEventLog;
+    private final ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    public ClickRollupJob(ClickEventLog clickEventLog, ClickRollupRepository clickRollupRepository) {
+        this.clickEventLog = clickEventLog;
+        this.clickRollupRepository = clickRollupRepository;
+    }
+
+    /**
+     * Compacts all completed segments. Stops at the first failure and retries on the next run.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.click-log.rollup-interval-ms:300000}")
+    public void compact() {
+        try {
+            for (Path segment : clickEventLog.completedSegments()) {
+                compactSegment(segment);
+            }
+        } catch (IOException | DataAccessException e) {
+            log.warn("compact, failed to compact click log segments, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    private void compactSegment(Path segment) throws IOException {
+        String segmentName = segment.getFileName().toString();
+        if (clickRollupRepository.isSegmentCompacted(segmentName)) {
+            log.debug("compactSegment, segment {} was already compacted, deleting", segmentName);
+            Files.delete(segment);
+            return;
+        }
+
+        Map<String, Map<Instant, Long>> rollups = new HashMap<>();
+        long events = 0;
+        boolean foreign;
+        try (FileChannel channel = FileChannel.open(segment)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            foreign = buffer.remaining() < ClickEventLog.HEADER_SIZE || buffer.getInt() != ClickEventLog.MAGIC
+                    || buffer.getInt() != ClickEventLog.VERSION;
+            if (!foreign) {
+                events = aggregate(buffer, rollups);
+            }
+        }
+        if (foreign) {
+            Path quarantined = segment.resolveSibling(segmentName + QUARANTINE_SUFFIX);
+            Files.move(segment, quarantined, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("compactSegment, {} is not a click log segment of the current version, moved to {}", segment,
+                    quarantined);
+            return;
+        }
+
+        clickRollupRepository.saveRollups(segmentName, rollups);
+        Files.delete(segment);
+        log.debug("compactSegment, compacted {} click(s) on {} link(s) from segment {}", events, rollups.size(),
+                segmentName);
+    }
+
+    /**
+     * Counts the events of a segment per link and hour.
+     * @param buffer the segment, positioned after the header
+     * @param rollups the counts per shorthand and hour to add to
+     * @return the number of events read
+     */
+    private static long aggregate(MappedByteBuffer buffer, Map<String, Map<Instant, Long>> rollups) {
+        long events = 0;
+        Map<Long, String> shorthands = new HashMap<>();
+        // A partially written trailing record, left by a crash, is ignored
+        while (buffer.remaining() >= ClickEvent.SIZE) {
+            ClickEvent event = ClickEvent.readFrom(buffer);
+            String shorthand = shorthands.computeIfAbsent(event.shorthand(), PackedShorthand::unpack);
+            Instant hour = Instant.ofEpochMilli(event.timestamp() - Math.floorMod(event.timestamp(), HOUR_MILLIS));
+            rollups.computeIfAbsent(shorthand, key -> new HashMap<>()).merge(hour, 1L, Long::sum);
+            events++;
+        }
+        return events;
+    }
+}
@@ -0,0 +1,401 @@
+package gg.nya.tgirlclicker.service.coordination;
+
+import gg.nya.tgirlclicker.service.CreationRateLimiter;
+import gg.nya.tgirlclicker.service.ShorthandCache;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the local caches of several instances coherent over PostgreSQL {@code LISTEN/NOTIFY}.
+ * <p>
+ * Link creations and penalty changes are queued and published by a single coordinator thread on the shared
+ * connection pool, with as many events per {@code NOTIFY} as fit into one payload. The same thread listens on a
+ * dedicated connection outside the pool and applies the events of other instances in batches. A link event removes
+ * the shorthand from the {@link ShorthandCache}, including a negative entry cached before the link was created. A
+ * penalty event drops the creation history of the client IP from the {@link CreationRateLimiter}, so it is reloaded
+ * from the database, including the other instance's creation, on the next attempt.
+ * <p>
+ * Notifications sent while the listening connection is down are lost, so after every (re)connect both caches are
+ * cleared and filled from the database again on demand. The off-heap shorthand index only holds existing links and
+ * links are never changed, so it cannot become stale and is left as is.
+ */
+@Component
+public class ClusterCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    static final String CHANNEL = "tgirlclicker_events";
+    // NOTIFY payloads must be shorter than 8000 bytes, events are ASCII only
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+    static final int MAX_KEY_LENGTH = 255;
+    static final char LINK_EVENT = 'L';
+    static final char PENALTY_EVENT = 'P';
+
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 1000;
+
+    private final boolean enabled;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShorthandCache shorthandCache;
+    private final CreationRateLimiter creationRateLimiter;
+    private final int pollIntervalMillis;
+    private final long keepaliveIntervalMillis;
+    private final long maxReconnectDelayMillis;
+    private final ArrayBlockingQueue<String> queue;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder receivedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread coordinator;
+
+    // Only accessed by the coordinator thread
+    private Connection connection;
+    private long reconnectDelayMillis;
+    private long nextConnectAttempt;
+    private long lastKeepalive;
+
+    @Autowired
+    public ClusterCoordinator(@Value("${tgirlclicker.coordination.enabled:true}") boolean enabled,
+                              DataSourceProperties dataSourceProperties, JdbcTemplate jdbcTemplate,
+                              ShorthandCache shorthandCache, CreationRateLimiter creationRateLimiter,
+                              @Value("${tgirlclicker.coordination.poll-interval-ms:50}") int pollIntervalMillis,
+                              @Value("${tgirlclicker.coordination.keepalive-interval:PT10S}")
+                              Duration keepaliveInterval,
+                              @Value("${tgirlclicker.coordination.max-reconnect-delay:PT30S}")
+                              Duration maxReconnectDelay,
+                              @Value("${tgirlclicker.coordination.queue-size:10000}") int queueSize) {
+        if (pollIntervalMillis < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Coordination poll interval and queue size must be at least 1.");
+        }
+        this.enabled = enabled;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shorthandCache = shorthandCache;
+        this.creationRateLimiter = creationRateLimiter;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.keepaliveIntervalMillis = keepaliveInterval.toMillis();
+        this.maxReconnectDelayMillis = Math.max(INITIAL_RECONNECT_DELAY_MILLIS, maxReconnectDelay.toMillis());
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Starts the coordinator thread once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("start, cluster coordination is disabled");
+            return;
+        }
+        running = true;
+        coordinator = new Thread(this::run, "cluster-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * Tells the other instances that a link was created or changed. Never blocks.
+     * @param shorthand the shorthand of the link
+     */
+    public void publishLinkChanged(String shorthand) {
+        enqueue(LINK_EVENT, shorthand);
+    }
+
+    /**
+     * Tells the other instances that a client created a link, changing its penalty. Must only be called once the
+     * link is committed, so the other instances see it when they reload the client's history. Never blocks.
+     * @param clientIp the IP address of the client
+     */
+    public void publishPenaltyChanged(String clientIp) {
+        enqueue(PENALTY_EVENT, clientIp);
+    }
+
+    private void enqueue(char type, String key) {
+        if (!running) {
+            return;
+        }
+        if (!isValidKey(key) || !queue.offer(type + key)) {
+            droppedEvents.increment();
+        }
+    }
+
+    /**
+     * Checks that a key can be encoded as a single line of a payload.
+     */
+    private static boolean isValidKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < ' ' || c > '~') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Coordinator loop, listening on the dedicated connection and publishing queued events until stopped.
+     */
+    private void run() {
+        try {
+            while (running) {
+                if (connection == null && System.currentTimeMillis() >= nextConnectAttempt) {
+                    connect();
+                }
+                if (connection != null) {
+                    receive();
+                } else {
+                    Thread.sleep(pollIntervalMillis);
+                }
+                publish();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publish();
+        closeConnection();
+    }
+
+    /**
+     * Opens the dedicated connection and listens on the channel, then clears the local caches, as events may have
+     * been missed while not listening. Schedules the next attempt with exponential backoff on failure.
+     */
+    private void connect() {
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            properties.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        properties.setProperty("ApplicationName", "tgirlclicker-coordinator-" + nodeId);
+
+        Connection newConnection = null;
+        try {
+            newConnection = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+            try (Statement statement = newConnection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+        } catch (SQLException e) {
+            closeQuietly(newConnection);
+            reconnectDelayMillis = reconnectDelayMillis == 0
+                    ? INITIAL_RECONNECT_DELAY_MILLIS
+                    : Math.min(reconnectDelayMillis * 2, maxReconnectDelayMillis);
+            nextConnectAttempt = System.currentTimeMillis() + reconnectDelayMillis;
+            log.warn("connect, could not listen for cluster events, retrying in {} ms: {}", reconnectDelayMillis,
+                    e.getMessage());
+            return;
+        }
+
+        connection = newConnection;
+        reconnectDelayMillis = 0;
+        lastKeepalive = System.currentTimeMillis();
+        resync();
+        connected = true;
+        log.info("connect, listening for cluster events on channel {} as node {}", CHANNEL, nodeId);
+    }
+
+    /**
+     * Clears all local state that other instances may have changed while this instance was not listening.
+     */
+    private void resync() {
+        shorthandCache.invalidateAll();
+        creationRateLimiter.invalidateAll();
+        resyncs.increment();
+        log.info("resync, cleared shorthand cache and creation histories");
+    }
+
+    /**
+     * Waits up to one poll interval for notifications and applies them, and periodically checks that the
+     * connection is still alive. Drops the connection on failure, so it is reopened on the next iteration.
+     */
+    private void receive() {
+        try {
+            PGNotification[] notifications = connection.unwrap(PGConnection.class)
+                    .getNotifications(pollIntervalMillis);
+            if (notifications != null && notifications.length > 0) {
+                apply(notifications);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastKeepalive >= keepaliveIntervalMillis) {
+                lastKeepalive = now;
+                if (!connection.isValid(1)) {
+                    throw new SQLException("Connection is no longer valid");
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("receive, lost the cluster event connection, reconnecting: {}", e.getMessage());
+            closeConnection();
+        }
+    }
+
+    /**
+     * Applies a batch of notifications, invalidating each affected shorthand and client IP once.
+     * Events published by this instance are skipped.
+     */
+    private void apply(PGNotification[] notifications) {
+        Set<String> shorthands = new HashSet<>();
+        Set<String> clientIps = new HashSet<>();
+        String ownPrefix = nodeId + '\n';
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            if (!CHANNEL.equals(notification.getName()) || payload.startsWith(ownPrefix)) {
+                continue;
+            }
+            List<String> lines = payload.lines().skip(1).toList();
+            for (String line : lines) {
+                if (line.length() < 2) {
+                    continue;
+                }
+                switch (line.charAt(0)) {
+                    case LINK_EVENT -> shorthands.add(line.substring(1));
+                    case PENALTY_EVENT -> clientIps.add(line.substring(1));
+                    default -> log.debug("apply, ignoring unknown cluster event: {}", line);
+                }
+            }
+            receivedEvents.add(lines.size());
+        }
+
+        if (!shorthands.isEmpty()) {
+            shorthandCache.invalidateAll(shorthands);
+        }
+        if (!clientIps.isEmpty()) {
+            creationRateLimiter.invalidateAll(clientIps);
+        }
+        log.debug("apply, applied cluster events for {} shorthand(s) and {} client IP(s)", shorthands.size(),
+                clientIps.size());
+    }
+
+    /**
+     * Publishes all queued events, packing as many as fit into each payload.
+     */
+    private void publish() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        List<String> events = new ArrayList<>(queue.size());
+        queue.drainTo(events);
+
+        StringBuilder payload = new StringBuilder(MAX_PAYLOAD_LENGTH).append(nodeId);
+        int eventsInPayload = 0;
+        for (String event : events) {
+            if (payload.length() + 1 + event.length() > MAX_PAYLOAD_LENGTH) {
+                send(payload.toString(), eventsInPayload);
+                payload.setLength(nodeId.length());
+                eventsInPayload = 0;
+            }
+            payload.append('\n').append(event);
+            eventsInPayload++;
+        }
+        send(payload.toString(), eventsInPayload);
+    }
+
+    private void send(String payload, int eventCount) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (RowCallbackHandler) rs -> { }, CHANNEL, payload);
+            publishedEvents.add(eventCount);
+        } catch (DataAccessException e) {
+            droppedEvents.add(eventCount);
+            log.warn("send, failed to publish {} cluster event(s): {}", eventCount, e.getMessage());
+        }
+    }
+
+    private void closeConnection() {
+        connected = false;
+        closeQuietly(connection);
+        connection = null;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    /**
+     * Stops the coordinator thread after publishing the remaining events.
+     * @throws InterruptedException if interrupted while waiting for the coordinator thread
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        coordinator.join(Duration.ofSeconds(5));
+        if (coordinator.isAlive()) {
+            log.warn("stop, coordinator thread did not finish, {} queued cluster event(s) are discarded",
+                    queue.size());
+        }
+    }
+
+    /**
+     * Returns the id this instance marks its events with.
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns whether this instance is currently listening for cluster events.
+     * @return true if the listening connection is open
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.sum();
+    }
+
+    public long getReceivedEvents() {
+        return receivedEvents.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    public long getResyncs() {
+        return resyncs.sum();
+    }
+}
@@ -0,0 +1,360 @@
+package gg.nya.tgirlclicker.service.index;
+
+import gg.nya.tgirlclicker.service.shorthand.PackedShorthand;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open addressing hash table from shorthand to link, stored in a memory-mapped file.
+ * <p>
+ * The file consists of a fixed size header, a slot table and an append-only data region. Each slot holds the
+ * {@link PackedShorthand packed shorthand} and a long pointing at the link in the data region, with the alternative
+ * mode flag in its lowest bit. Each link in the data region is stored as an unsigned 16-bit length followed by its
+ * UTF-8 bytes. The header records the identity of the database the table was built from, so a file is never
+ * reused against another database.
+ * <p>
+ * There is a single writer at a time, readers never lock. A slot's value is written before its key, and the key is
+ * written with release semantics, so a reader that sees the key also sees the complete entry. Replacing the link of
+ * a present shorthand appends the new link and swaps the slot's value with release semantics; the old link's bytes
+ * stay unused in the data region until the table is copied. Looking up a slot allocates nothing, only materializing
+ * the link of a hit does.
+ */
+final class MappedShorthandTable implements Closeable {
+
+    private static final int MAGIC = 0x54475349;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int DATA_CAPACITY_OFFSET = 20;
+    private static final int DATA_END_OFFSET = 24;
+    private static final int LAST_LINK_ID_OFFSET = 32;
+    private static final int DATABASE_ID_OFFSET = 40;
+
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_LINK_BYTES = 0xFFFF;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private final int dataStart;
+    private final int dataCapacity;
+    private final long databaseId;
+
+    private int size;
+    private int dataEnd;
+    private long lastLinkId;
+
+    private MappedShorthandTable(FileChannel channel, MappedByteBuffer buffer, int capacity, int dataCapacity,
+                                 long databaseId) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.dataStart = HEADER_SIZE + capacity * SLOT_SIZE;
+        this.dataCapacity = dataCapacity;
+        this.databaseId = databaseId;
+    }
+
+    /**
+     * Creates a new, empty table, replacing any existing file.
+     * @param path the file to create
+     * @param capacity the number of slots, must be a power of two
+     * @param dataCapacity the size of the data region in bytes
+     * @param databaseId the identity of the database the table is built from
+     * @return the table
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static MappedShorthandTable create(Path path, int capacity, int dataCapacity, long databaseId)
+            throws IOException {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Shorthand index capacity must be a power of two.");
+        }
+        long fileSize = (long) HEADER_SIZE + (long) capacity * SLOT_SIZE + dataCapacity;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Shorthand index of " + fileSize + " bytes exceeds the 2 GB limit.");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(DATA_CAPACITY_OFFSET, dataCapacity);
+        buffer.putLong(DATABASE_ID_OFFSET, databaseId);
+        MappedShorthandTable table = new MappedShorthandTable(channel, buffer, capacity, dataCapacity, databaseId);
+        table.writeHeader(false);
+        return table;
+    }
+
+    /**
+     * Opens an existing table.
+     * @param path the file to open
+     * @param databaseId the identity of the database the table must have been built from
+     * @return the table, or null if the file does not hold a table of the current version, was built from another
+     * database or was not closed cleanly
+     * @throws IOException if the file cannot be read or mapped
+     */
+    static MappedShorthandTable open(Path path, long databaseId) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        int dataCapacity = buffer.getInt(DATA_CAPACITY_OFFSET);
+        boolean valid = buffer.getInt(MAGIC_OFFSET) == MAGIC
+                && buffer.getInt(VERSION_OFFSET) == VERSION
+                && buffer.getInt(CLEAN_OFFSET) == 1
+                && buffer.getLong(DATABASE_ID_OFFSET) == databaseId
+                && capacity > 0 && Integer.bitCount(capacity) == 1 && dataCapacity >= 0
+                && fileSize == (long) HEADER_SIZE + (long) capacity * SLOT_SIZE + dataCapacity;
+        if (!valid) {
+            channel.close();
+            return null;
+        }
+
+        MappedShorthandTable table = new MappedShorthandTable(channel, buffer, capacity, dataCapacity, databaseId);
+        table.size = buffer.getInt(SIZE_OFFSET);
+        table.dataEnd = (int) buffer.getLong(DATA_END_OFFSET);
+        table.lastLinkId = buffer.getLong(LAST_LINK_ID_OFFSET);
+        // Until closed cleanly again, the file must not be trusted on the next start
+        table.writeHeader(false);
+        return table;
+    }
+
+    /**
+     * Looks up a shorthand without allocating.
+     * @param shorthand the shorthand to look up
+     * @return the entry of the shorthand, or -1 if it is not in the table
+     */
+    long find(CharSequence shorthand) {
+        long key = PackedShorthand.pack(shorthand);
+        if (key == 0) {
+            return -1;
+        }
+        int slot = hash(key) & mask;
+        while (true) {
+            int offset = slotOffset(slot);
+            long current = (long) LONGS.getAcquire(buffer, offset);
+            if (current == 0) {
+                return -1;
+            }
+            if (current == key) {
+                // Acquire, as the value of a present key is replaced when its link changes
+                return (long) LONGS.getAcquire(buffer, offset + 8);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Reads the link of an entry returned by {@link #find(CharSequence)}.
+     * @param entry the entry
+     * @return the link
+     */
+    String link(long entry) {
+        int offset = dataStart + (int) (entry >>> 1);
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the alternative mode flag of an entry returned by {@link #find(CharSequence)}.
+     * @param entry the entry
+     * @return whether the link is in alternative mode
+     */
+    static boolean alternativeMode(long entry) {
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Checks whether another link of the given size fits without exceeding the load factor or the data region.
+     * @param linkBytes the UTF-8 encoded link
+     * @return true if the link can be added
+     */
+    boolean canFit(byte[] linkBytes) {
+        return size + 1 <= capacity * MAX_LOAD_FACTOR && (long) dataEnd + 2 + linkBytes.length <= dataCapacity;
+    }
+
+    /**
+     * Adds a link, or replaces the link of a shorthand that is already present with a different one. Must only be
+     * called by a single writer at a time, and only if {@link #canFit(byte[])} returned true.
+     * @param linkId the database id of the link, or 0 if unknown
+     * @param shorthand the shorthand
+     * @param linkBytes the UTF-8 encoded link
+     * @param alternativeMode whether the link is in alternative mode
+     * @return true if the link was added or replaced, false if the shorthand already had this link or the link
+     * cannot be stored
+     */
+    boolean put(long linkId, CharSequence shorthand, byte[] linkBytes, boolean alternativeMode) {
+        long key = PackedShorthand.pack(shorthand);
+        if (key == 0 || linkBytes.length > MAX_LINK_BYTES) {
+            return false;
+        }
+        int slot = hash(key) & mask;
+        boolean present;
+        while (true) {
+            long current = (long) LONGS.getAcquire(buffer, slotOffset(slot));
+            if (current == key) {
+                present = true;
+                break;
+            }
+            if (current == 0) {
+                present = false;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (present && hasLink((long) LONGS.get(buffer, slotOffset(slot) + 8), linkBytes, alternativeMode)) {
+            updateLastLinkId(linkId);
+            return false;
+        }
+
+        int offset = dataStart + dataEnd;
+        buffer.putShort(offset, (short) linkBytes.length);
+        buffer.put(offset + 2, linkBytes);
+        LONGS.setRelease(buffer, slotOffset(slot) + 8, ((long) dataEnd << 1) | (alternativeMode ? 1 : 0));
+        if (!present) {
+            LONGS.setRelease(buffer, slotOffset(slot), key);
+            size++;
+        }
+
+        dataEnd += 2 + linkBytes.length;
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putLong(DATA_END_OFFSET, dataEnd);
+        updateLastLinkId(linkId);
+        return true;
+    }
+
+    /**
+     * Copies all entries into another table, which must be large enough to hold them.
+     * @param target the table to copy into
+     */
+    void copyTo(MappedShorthandTable target) {
+        StringBuilder shorthand = new StringBuilder(8);
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slotOffset(slot);
+            long key = (long) LONGS.getAcquire(buffer, offset);
+            if (key == 0) {
+                continue;
+            }
+            long entry = (long) LONGS.get(buffer, offset + 8);
+            int dataOffset = dataStart + (int) (entry >>> 1);
+            byte[] linkBytes = new byte[buffer.getShort(dataOffset) & 0xFFFF];
+            buffer.get(dataOffset + 2, linkBytes);
+            target.put(0, PackedShorthand.unpack(key, shorthand), linkBytes, alternativeMode(entry));
+        }
+        target.lastLinkId = Math.max(target.lastLinkId, lastLinkId);
+        target.buffer.putLong(LAST_LINK_ID_OFFSET, target.lastLinkId);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int dataCapacity() {
+        return dataCapacity;
+    }
+
+    long lastLinkId() {
+        return lastLinkId;
+    }
+
+    long databaseId() {
+        return databaseId;
+    }
+
+    /**
+     * Writes all changes to disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Marks the table as consistent, writes it to disk and closes the file. The mapping stays readable until it is
+     * garbage collected, so concurrent readers are not affected.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        writeHeader(true);
+        buffer.force();
+        channel.close();
+    }
+
+    private void writeHeader(boolean clean) {
+        buffer.putInt(CLEAN_OFFSET, clean ? 1 : 0);
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putLong(DATA_END_OFFSET, dataEnd);
+        buffer.putLong(LAST_LINK_ID_OFFSET, lastLinkId);
+    }
+
+    private void updateLastLinkId(long linkId) {
+        lastLinkId = Math.max(lastLinkId, linkId);
+        buffer.putLong(LAST_LINK_ID_OFFSET, lastLinkId);
+    }
+
+    /**
+     * Checks whether an entry holds the given link and alternative mode flag.
+     */
+    private boolean hasLink(long entry, byte[] linkBytes, boolean alternativeMode) {
+        if (alternativeMode(entry) != alternativeMode) {
+            return false;
+        }
+        int offset = dataStart + (int) (entry >>> 1);
+        if ((buffer.getShort(offset) & 0xFFFF) != linkBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < linkBytes.length; i++) {
+            if (buffer.get(offset + 2 + i) != linkBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int hash(long key) {
+        // Finalizer of MurmurHash3, spreading the packed characters over all bits
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb53fe85a840dL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
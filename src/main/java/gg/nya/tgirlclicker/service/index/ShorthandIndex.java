@@ -0,0 +1,312 @@
+package gg.nya.tgirlclicker.service.index;
+
+import gg.nya.tgirlclicker.service.model.ResolvedLink;
+import gg.nya.tgirlclicker.service.shorthand.PackedShorthand;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local, off-heap index of all links, kept in a {@link MappedShorthandTable}.
+ * <p>
+ * On startup an existing index file that was closed cleanly and built from the same database is reused and only
+ * links created since are loaded from the database, otherwise the index is rebuilt from scratch. The database is
+ * identified by the random id in the {@code database_identity} table, and an index holding ids beyond the highest id
+ * in the database, e.g. after a restore from a backup, is rebuilt as well. Ids are allocated in blocks per instance,
+ * so links are not committed in id order, and a reused index is checked against all shorthands in the database for
+ * links it missed. Links created or resolved from the database later on are added incrementally, and a shorthand
+ * found with a different destination than the indexed one is replaced. Redirects are served from the index first,
+ * and keep being served from it if the database becomes unreachable.
+ */
+@Component
+public class ShorthandIndex {
+    private static final Logger log = LoggerFactory.getLogger(ShorthandIndex.class);
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MISSING_BATCH_SIZE = 1000;
+    private static final String LOAD_SQL = "SELECT id, shorthand, link, alternative_mode FROM links ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path path;
+    private final int initialCapacity;
+    private final int averageLinkBytes;
+    // A lock rather than synchronized, so a virtual thread writing to the index does not pin its carrier thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile MappedShorthandTable table;
+    private long databaseId;
+
+    @Autowired
+    public ShorthandIndex(JdbcTemplate jdbcTemplate,
+                          @Value("${tgirlclicker.shorthand-index.enabled:true}") boolean enabled,
+                          @Value("${tgirlclicker.shorthand-index.path:data/shorthand-index.bin}") Path path,
+                          @Value("${tgirlclicker.shorthand-index.initial-capacity:65536}") int initialCapacity,
+                          @Value("${tgirlclicker.shorthand-index.average-link-bytes:128}") int averageLinkBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.path = path;
+        this.initialCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1);
+        this.averageLinkBytes = averageLinkBytes;
+    }
+
+    /**
+     * Loads the index in the background once the application has started. Until it is loaded, redirects are
+     * resolved from the database only.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            log.info("load, shorthand index is disabled");
+            return;
+        }
+        Thread.ofVirtual().name("shorthand-index-loader").start(() -> {
+            try {
+                loadOrBuild();
+            } catch (IOException | RuntimeException e) {
+                log.error("load, failed to load shorthand index, redirects are served from the database only", e);
+            }
+        });
+    }
+
+    /**
+     * Looks up a shorthand in the index.
+     * @param shorthand the shorthand to look up
+     * @return the resolved link, or null if the shorthand is not in the index or the index is not loaded
+     */
+    public ResolvedLink resolve(String shorthand) {
+        MappedShorthandTable current = table;
+        if (current == null) {
+            return null;
+        }
+        long entry = current.find(shorthand);
+        if (entry < 0) {
+            return null;
+        }
+        return new ResolvedLink(shorthand, current.link(entry), MappedShorthandTable.alternativeMode(entry));
+    }
+
+    /**
+     * Adds a link to the index, unless it is not loaded yet. Links added before the index is loaded are picked up
+     * from the database while loading.
+     * @param linkId the database id of the link, or 0 if unknown
+     * @param link the link to add
+     */
+    public void add(long linkId, ResolvedLink link) {
+        if (table == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            put(linkId, link.shorthand(), link.link(), link.alternativeMode());
+        } catch (IOException e) {
+            log.warn("add, failed to grow shorthand index, link {} is not indexed", link.shorthand(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the index is loaded and used to resolve redirects.
+     * @return true if the index is loaded
+     */
+    public boolean isLoaded() {
+        return table != null;
+    }
+
+    /**
+     * Returns the number of indexed links.
+     * @return the number of links, 0 if the index is not loaded
+     */
+    public int size() {
+        MappedShorthandTable current = table;
+        return current == null ? 0 : current.size();
+    }
+
+    /**
+     * Marks the index file as consistent and closes it, so it can be reused on the next start.
+     */
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            if (table != null) {
+                table.close();
+                log.info("close, shorthand index with {} link(s) written to {}", table.size(), path);
+            }
+        } catch (IOException e) {
+            log.warn("close, failed to close shorthand index, it will be rebuilt on the next start", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Opens the existing index file, or builds a new one, and loads all links newer than the indexed ones.
+     */
+    private void loadOrBuild() throws IOException {
+        writeLock.lock();
+        try {
+            databaseId = jdbcTemplate.queryForObject("SELECT id FROM database_identity", Long.class);
+            MappedShorthandTable loaded = null;
+            if (Files.exists(path)) {
+                loaded = MappedShorthandTable.open(path, databaseId);
+                if (loaded == null) {
+                    log.warn("loadOrBuild, shorthand index {} is outdated, belongs to another database or was not "
+                            + "closed cleanly, rebuilding", path);
+                } else if (loaded.lastLinkId() > maxLinkId()) {
+                    log.warn("loadOrBuild, shorthand index {} holds links the database does not, rebuilding", path);
+                    loaded.close();
+                    loaded = null;
+                }
+            }
+            if (loaded == null) {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Long linkCount = jdbcTemplate.queryForObject("SELECT count(*) FROM links", Long.class);
+                int capacity = capacityFor(linkCount == null ? 0 : linkCount);
+                int dataCapacity = (int) Math.min(Integer.MAX_VALUE / 2, (long) capacity * averageLinkBytes);
+                loaded = MappedShorthandTable.create(path, capacity, dataCapacity, databaseId);
+            }
+            long lastLinkId = loaded.lastLinkId();
+            int reusedLinks = loaded.size();
+
+            // Loading runs before the index is published, so the table is swapped locally when it has to grow
+            MappedShorthandTable[] current = {loaded};
+            jdbcTemplate.query(LOAD_SQL + "WHERE id > ? ORDER BY id", rs -> {
+                current[0] = putRow(current[0], rs);
+            }, lastLinkId);
+            if (reusedLinks > 0) {
+                int missedLinks = loadMissing(current);
+                if (missedLinks > 0) {
+                    log.info("loadOrBuild, loaded {} link(s) committed out of id order", missedLinks);
+                }
+            }
+            current[0].force();
+            table = current[0];
+            log.info("loadOrBuild, shorthand index loaded with {} link(s), {} reused from {}",
+                    table.size(), reusedLinks, path);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the links whose shorthands are in the database but not in the table, e.g. links committed after links
+     * with higher ids. Only shorthands are read to find them, which is much cheaper than reloading all links.
+     * @param current the table being loaded, replaced if it has to grow
+     * @return the number of links loaded
+     */
+    private int loadMissing(MappedShorthandTable[] current) {
+        List<String> missing = new ArrayList<>();
+        jdbcTemplate.query("SELECT shorthand FROM links", rs -> {
+            String shorthand = rs.getString(1);
+            // Shorthands that cannot be packed are never indexed
+            if (current[0].find(shorthand) < 0 && PackedShorthand.pack(shorthand) != 0) {
+                missing.add(shorthand);
+            }
+        });
+
+        int sizeBefore = current[0].size();
+        for (int start = 0; start < missing.size(); start += MISSING_BATCH_SIZE) {
+            List<String> batch = missing.subList(start, Math.min(missing.size(), start + MISSING_BATCH_SIZE));
+            jdbcTemplate.query(LOAD_SQL + "WHERE shorthand = ANY (?)", (PreparedStatement ps) -> ps.setArray(1,
+                    ps.getConnection().createArrayOf("varchar", batch.toArray())), rs -> {
+                current[0] = putRow(current[0], rs);
+            });
+        }
+        return current[0].size() - sizeBefore;
+    }
+
+    /**
+     * Returns the highest link id in the database, 0 if there are no links.
+     */
+    private long maxLinkId() {
+        Long maxLinkId = jdbcTemplate.queryForObject("SELECT max(id) FROM links", Long.class);
+        return maxLinkId == null ? 0 : maxLinkId;
+    }
+
+    /**
+     * Adds the link of the current row of a {@link #LOAD_SQL} query to a table.
+     * @return the table the link was added to
+     */
+    private MappedShorthandTable putRow(MappedShorthandTable target, ResultSet rs) throws SQLException {
+        try {
+            return putInto(target, rs.getLong(1), rs.getString(2), rs.getString(3), rs.getBoolean(4));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to grow shorthand index", e);
+        }
+    }
+
+    /**
+     * Adds a link to the published table, growing it if necessary. Must be called with the write lock held.
+     */
+    private void put(long linkId, String shorthand, String link, boolean alternativeMode) throws IOException {
+        MappedShorthandTable current = table;
+        MappedShorthandTable updated = putInto(current, linkId, shorthand, link, alternativeMode);
+        if (updated != current) {
+            table = updated;
+        }
+    }
+
+    /**
+     * Adds a link to a table, replacing the table by a larger copy first if the link does not fit. A shorthand that
+     * is already indexed with a different destination is replaced, as the database is the source of truth.
+     * @return the table the link was added to
+     */
+    private MappedShorthandTable putInto(MappedShorthandTable target, long linkId, String shorthand, String link,
+                                         boolean alternativeMode) throws IOException {
+        byte[] linkBytes = link.getBytes(StandardCharsets.UTF_8);
+        if (!target.canFit(linkBytes)) {
+            target = grow(target, linkBytes.length);
+        }
+        boolean present = target.find(shorthand) >= 0;
+        if (target.put(linkId, shorthand, linkBytes, alternativeMode) && present) {
+            log.warn("putInto, shorthand {} was indexed with another destination, replaced it", shorthand);
+        }
+        return target;
+    }
+
+    /**
+     * Copies a table into a new file of twice the size and moves it over the old one. The old mapping stays valid
+     * for readers that still hold it.
+     */
+    private MappedShorthandTable grow(MappedShorthandTable old, int additionalBytes) throws IOException {
+        int capacity = old.capacity() * 2;
+        int dataCapacity = Math.max(old.dataCapacity() * 2, old.dataCapacity() + additionalBytes + 2);
+        Path growing = path.resolveSibling(path.getFileName() + ".tmp");
+        MappedShorthandTable grown = MappedShorthandTable.create(growing, capacity, dataCapacity, databaseId);
+        old.copyTo(grown);
+        grown.force();
+        old.close();
+        Files.move(growing, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("grow, shorthand index grown to {} slots and {} data bytes", capacity, dataCapacity);
+        return grown;
+    }
+
+    private int capacityFor(long linkCount) {
+        // Keep the initial load factor at or below one half
+        long needed = Math.max(initialCapacity, linkCount * 2);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+}
@@ -0,0 +1,17 @@
+package gg.nya.tgirlclicker.service.model;
+
+import gg.nya.tgirlclicker.repository.Link;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of creating many links in one request.
+ *
+ * @param links          the created or existing link of each accepted URL, keyed by the URL as submitted,
+ *                       in submission order
+ * @param rejected       the submitted URLs for which no link could be created because the client is under penalty
+ * @param penaltyMinutes the duration in minutes until the client can create the next link, 0 if nothing was rejected
+ */
+public record BulkCreationResult(Map<String, Link> links, List<String> rejected, int penaltyMinutes) {
+}
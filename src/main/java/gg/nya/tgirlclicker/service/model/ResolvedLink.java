@@ -0,0 +1,32 @@
+package gg.nya.tgirlclicker.service.model;
+
+import gg.nya.tgirlclicker.repository.Link;
+import gg.nya.tgirlclicker.repository.LinkTarget;
+
+/**
+ * Immutable view of a link as needed to resolve a redirect.
+ *
+ * @param shorthand       the shorthand via which the link is accessed
+ * @param link            the destination of the link
+ * @param alternativeMode whether the redirect page should be shown before redirecting
+ */
+public record ResolvedLink(String shorthand, String link, boolean alternativeMode) {
+
+    /**
+     * Creates a resolved link from a link entity.
+     * @param link the link entity
+     * @return the resolved link
+     */
+    public static ResolvedLink of(Link link) {
+        return new ResolvedLink(link.getShorthand(), link.getLink(), link.isAlternativeMode());
+    }
+
+    /**
+     * Creates a resolved link from a link projection.
+     * @param target the link projection
+     * @return the resolved link
+     */
+    public static ResolvedLink of(LinkTarget target) {
+        return new ResolvedLink(target.shorthand(), target.link(), target.alternativeMode());
+    }
+}
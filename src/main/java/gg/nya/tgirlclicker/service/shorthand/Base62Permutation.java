@@ -0,0 +1,149 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Keyed bijection from a sequence number to a fixed-length base62 code.
+ * Sequence numbers are assigned to code lengths in ascending order (all 4-character codes first, then all
+ * 5-character codes, and so on) and permuted within the code space of their length by a small Feistel network
+ * with cycle walking. Distinct sequence numbers therefore always map to distinct codes, while consecutive
+ * numbers yield codes that look unrelated to each other.
+ */
+public class Base62Permutation {
+
+    /**
+     * The alphabet used for shorthands.
+     */
+    public static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final int BASE = ALPHABET.length();
+    private static final int ROUNDS = 4;
+
+    private final long[] roundKeys = new long[ROUNDS];
+    private final int minLength;
+    private final int maxLength;
+
+    /**
+     * Creates a new permutation.
+     * @param key the secret key, which must never change once codes have been handed out
+     * @param minLength the length of the shortest codes
+     * @param maxLength the length of the longest codes
+     */
+    public Base62Permutation(String key, int minLength, int maxLength) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Shorthand permutation key must not be blank.");
+        }
+        if (minLength < 1 || maxLength > 10 || minLength > maxLength) {
+            throw new IllegalArgumentException("Invalid shorthand length range " + minLength + "-" + maxLength);
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            ByteBuffer digest = ByteBuffer.wrap(mac.doFinal("shorthand-permutation".getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < ROUNDS; i++) {
+                roundKeys[i] = digest.getLong();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Maps a sequence number to its code.
+     * @param sequence the sequence number, starting at 0
+     * @return the code for the sequence number
+     * @throws IllegalArgumentException if the sequence number exceeds the code space
+     */
+    public String encode(long sequence) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Sequence number must not be negative.");
+        }
+
+        long offset = sequence;
+        for (int length = minLength; length <= maxLength; length++) {
+            long size = pow(length);
+            if (offset < size) {
+                return toBase62(permute(offset, size), length);
+            }
+            offset -= size;
+        }
+        throw new IllegalArgumentException("Sequence number " + sequence + " exceeds the shorthand code space.");
+    }
+
+    /**
+     * Permutes a value within [0, size) using a balanced Feistel network and cycle walking.
+     * @param value the value to permute
+     * @param size the size of the domain
+     * @return the permuted value
+     */
+    private long permute(long value, long size) {
+        int bits = 64 - Long.numberOfLeadingZeros(size - 1);
+        if ((bits & 1) == 1) {
+            bits++;
+        }
+        int halfBits = bits / 2;
+        long halfMask = (1L << halfBits) - 1;
+
+        long result = value;
+        do {
+            long left = result >>> halfBits;
+            long right = result & halfMask;
+            for (int round = 0; round < ROUNDS; round++) {
+                long next = left ^ (mix(right ^ roundKeys[round]) & halfMask);
+                left = right;
+                right = next;
+            }
+            result = (left << halfBits) | right;
+        } while (result >= size);
+        return result;
+    }
+
+    /**
+     * Returns the number of codes of the given length.
+     * @param length the code length
+     * @return BASE to the power of length
+     */
+    private static long pow(int length) {
+        long result = 1;
+        for (int i = 0; i < length; i++) {
+            result *= BASE;
+        }
+        return result;
+    }
+
+    /**
+     * Encodes a value as a zero-padded base62 string.
+     * @param value the value to encode
+     * @param length the length of the resulting string
+     * @return the encoded string
+     */
+    private static String toBase62(long value, int length) {
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 64-bit finalizer of MurmurHash3, used as the Feistel round function.
+     * @param value the value to mix
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
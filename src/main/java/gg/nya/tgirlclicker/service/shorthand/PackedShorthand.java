@@ -0,0 +1,56 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+/**
+ * Packs shorthands into longs, one byte per character.
+ * Shorthands are at most 8 ASCII characters long, so every shorthand has a unique, non-zero packed form that can be
+ * stored in fixed size binary structures.
+ */
+public final class PackedShorthand {
+
+    private PackedShorthand() {
+    }
+
+    /**
+     * Packs a shorthand into a long without allocating.
+     * @param shorthand the shorthand
+     * @return the packed shorthand, or 0 if it is empty, longer than 8 characters or not ASCII
+     */
+    public static long pack(CharSequence shorthand) {
+        int length = shorthand.length();
+        if (length == 0 || length > 8) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = shorthand.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                return 0;
+            }
+            key |= (long) c << (i * 8);
+        }
+        return key;
+    }
+
+    /**
+     * Unpacks a shorthand packed by {@link #pack(CharSequence)} into a reusable builder.
+     * @param packed the packed shorthand
+     * @param target the builder to unpack into, cleared first
+     * @return the target builder
+     */
+    public static StringBuilder unpack(long packed, StringBuilder target) {
+        target.setLength(0);
+        for (long remaining = packed; remaining != 0; remaining >>>= 8) {
+            target.append((char) (remaining & 0x7F));
+        }
+        return target;
+    }
+
+    /**
+     * Unpacks a shorthand packed by {@link #pack(CharSequence)}.
+     * @param packed the packed shorthand
+     * @return the shorthand
+     */
+    public static String unpack(long packed) {
+        return unpack(packed, new StringBuilder(8)).toString();
+    }
+}
@@ -0,0 +1,65 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import gg.nya.tgirlclicker.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Legacy shorthand allocator that generates random hex shorthands and checks the database for collisions.
+ * Each attempt costs a database round-trip, and the shorthand length only grows after 100 collisions.
+ */
+@Component
+@ConditionalOnProperty(name = "tgirlclicker.shorthand.allocator", havingValue = "random")
+public class RandomShorthandAllocator implements ShorthandAllocator {
+    private static final Logger log = LoggerFactory.getLogger(RandomShorthandAllocator.class);
+
+    private final LinkRepository linkRepository;
+    private final LinkMetrics linkMetrics;
+
+    @Autowired
+    public RandomShorthandAllocator(LinkRepository linkRepository, LinkMetrics linkMetrics) {
+        this.linkRepository = linkRepository;
+        this.linkMetrics = linkMetrics;
+    }
+
+    @Override
+    public String allocate() {
+        return generateUniqueShorthand();
+    }
+
+    /**
+     * Generates a unique shorthand for a new link.
+     * @return a unique shorthand string
+     */
+    String generateUniqueShorthand() {
+        log.debug("generateUniqueShorthand, generating unique shorthand for new link");
+
+        String shorthand;
+        int attempts = 0;
+        do {
+            shorthand = generateRandomShorthand((attempts / 100) + MIN_LENGTH);
+            attempts++;
+        } while (ShorthandAllocator.isReserved(shorthand) || linkRepository.existsByShorthand(shorthand));
+        linkMetrics.recordShorthandAttempts(attempts);
+        log.debug("generateUniqueShorthand, generated unique shorthand {} after {} attempt(s)", shorthand, attempts);
+        return shorthand;
+    }
+
+    /**
+     * Generates a random shorthand of the specified length.
+     * @param length the length of the shorthand to generate, must be between 4 and 8 characters
+     * @return a random shorthand string of the specified length
+     */
+    static String generateRandomShorthand(int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Shorthand length must not exceed 8 characters.");
+        }
+        return UUID.randomUUID().toString().substring(0, length);
+    }
+}
@@ -0,0 +1,131 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shorthand allocator backed by a database sequence.
+ * Blocks of sequence numbers are reserved from the database and each number is mapped to a base62 code by a
+ * keyed {@link Base62Permutation}. Since the permutation is a bijection, allocated shorthands never collide with each
+ * other and no existence checks are needed.
+ * <p>
+ * Shorthands created by the legacy random allocator consist only of lowercase hex characters. Codes made up
+ * exclusively of those characters are skipped, so allocated shorthands never collide with legacy ones either.
+ * Reserved paths such as {@code about} are skipped as well.
+ * <p>
+ * The block size is the increment of the sequence, which is owned by the schema migrations and read from
+ * {@code pg_sequences} before the first block is reserved. Instances never alter the sequence, so all of them agree
+ * on the block width and their blocks never overlap. Changing the block size requires a new migration.
+ */
+@Component
+@ConditionalOnProperty(name = "tgirlclicker.shorthand.allocator", havingValue = "sequence", matchIfMissing = true)
+public class SequenceShorthandAllocator implements ShorthandAllocator {
+    private static final Logger log = LoggerFactory.getLogger(SequenceShorthandAllocator.class);
+
+    static final String SEQUENCE_NAME = "links_shorthand_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Base62Permutation permutation;
+    private final LinkMetrics linkMetrics;
+    // A lock rather than synchronized, so a virtual thread reserving a block does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long nextSequence = 0;
+    private long blockEnd = 0;
+    // Increment of the sequence, read from the database before the first block is reserved
+    private long blockSize = 0;
+
+    @Autowired
+    public SequenceShorthandAllocator(JdbcTemplate jdbcTemplate, LinkMetrics linkMetrics,
+                                      @Value("${tgirlclicker.shorthand.key}") String key) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.permutation = new Base62Permutation(key, MIN_LENGTH, MAX_LENGTH);
+        this.linkMetrics = linkMetrics;
+    }
+
+    @Override
+    public String allocate() {
+        String shorthand;
+        int attempts = 0;
+        lock.lock();
+        try {
+            do {
+                shorthand = permutation.encode(nextSequenceNumber());
+                attempts++;
+            } while (isLegacyShorthand(shorthand) || ShorthandAllocator.isReserved(shorthand));
+        } finally {
+            lock.unlock();
+        }
+        linkMetrics.recordShorthandAttempts(attempts);
+        return shorthand;
+    }
+
+    /**
+     * Returns the next sequence number, reserving a new block from the database if the current one is used up.
+     * @return the next sequence number
+     */
+    private long nextSequenceNumber() {
+        if (nextSequence >= blockEnd) {
+            reserveBlock();
+        }
+        return nextSequence++;
+    }
+
+    /**
+     * Reserves a new block of sequence numbers from the database.
+     * The sequence increments by the block size, so each call to nextval reserves a full block.
+     */
+    private void reserveBlock() {
+        if (blockSize == 0) {
+            blockSize = readBlockSize();
+        }
+
+        Long blockStart = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE_NAME + "')", Long.class);
+        if (blockStart == null) {
+            throw new IllegalStateException("Sequence " + SEQUENCE_NAME + " returned no value.");
+        }
+        nextSequence = blockStart;
+        blockEnd = blockStart + blockSize;
+        log.debug("reserveBlock, reserved shorthand sequence block [{}, {})", nextSequence, blockEnd);
+    }
+
+    /**
+     * Reads the increment of the sequence, which is the width of every reserved block.
+     * @return the block size
+     * @throws IllegalStateException if the sequence does not exist or does not increment by at least 1
+     */
+    private long readBlockSize() {
+        Long increment = jdbcTemplate.query(
+                "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, SEQUENCE_NAME);
+        if (increment == null || increment < 1) {
+            throw new IllegalStateException("Sequence " + SEQUENCE_NAME + " must exist and increment by at least 1, "
+                    + "found increment: " + increment);
+        }
+        log.info("readBlockSize, reserving shorthand blocks of {} sequence numbers", increment);
+        return increment;
+    }
+
+    /**
+     * Checks whether a code could have been generated by the legacy random allocator.
+     * @param shorthand the code to check
+     * @return true if the code consists only of lowercase hex characters
+     */
+    private static boolean isLegacyShorthand(String shorthand) {
+        for (int i = 0; i < shorthand.length(); i++) {
+            char c = shorthand.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import java.util.Set;
+
+/**
+ * Hands out shorthands for new links.
+ * Implementations must return shorthands between 4 and 8 characters long that are not yet in use and not reserved.
+ */
+public interface ShorthandAllocator {
+
+    /**
+     * The minimum length of a shorthand.
+     */
+    int MIN_LENGTH = 4;
+
+    /**
+     * The maximum length of a shorthand.
+     */
+    int MAX_LENGTH = 8;
+
+    /**
+     * Single-segment paths served by the controllers. They shadow any link with the same shorthand, so they are
+     * never handed out.
+     */
+    Set<String> RESERVED_SHORTHANDS = Set.of("about", "links", "auth", "error");
+
+    /**
+     * Allocates a new, unused shorthand.
+     * @return the allocated shorthand
+     */
+    String allocate();
+
+    /**
+     * Checks whether a string could be a shorthand handed out by any allocator, without consulting the database.
+     * Legacy random shorthands only use lowercase hex characters, a subset of the base62 alphabet.
+     * @param shorthand the string to check
+     * @return true if the string has a valid length and only contains base62 characters
+     */
+    static boolean isWellFormed(String shorthand) {
+        int length = shorthand.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = shorthand.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a string is a path served by the controllers rather than a shorthand.
+     * @param shorthand the string to check
+     * @return true if the string must never be used as a shorthand
+     */
+    static boolean isReserved(String shorthand) {
+        return RESERVED_SHORTHANDS.contains(shorthand);
+    }
+}
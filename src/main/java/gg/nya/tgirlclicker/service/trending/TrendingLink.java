@@ -0,0 +1,10 @@
+package gg.nya.tgirlclicker.service.trending;
+
+/**
+ * A link currently trending.
+ *
+ * @param shorthand the shorthand of the link
+ * @param clicks    the estimated number of recent clicks, with older clicks counting less
+ */
+public record TrendingLink(String shorthand, long clicks) {
+}
@@ -0,0 +1,213 @@
+package gg.nya.tgirlclicker.service.trending;
+
+import gg.nya.tgirlclicker.service.shorthand.PackedShorthand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed-memory tracker of the links with the most recent clicks.
+ * <p>
+ * Clicks are counted in a Count-Min sketch of atomic counters, so recording a click takes a handful of lock-free
+ * additions and never allocates. Links whose estimated count exceeds the current admission threshold are kept as
+ * candidates in a bounded map, which is periodically pruned to the top links, raising the threshold to the smallest
+ * count among them. Every decay interval all counters are halved, so a click counts half as much after each interval
+ * and the ranking reflects what is popular right now rather than overall.
+ * <p>
+ * The ranking is public, so each client counts at most once per link and decay interval. Clicks already counted are
+ * remembered in a Bloom filter of client IP hash and link, which is cleared on every decay. A false positive only
+ * drops a click from the ranking.
+ * <p>
+ * Memory is bounded by the sketch size, the filter size and the maximum number of candidates, independent of the
+ * number of links.
+ */
+@Component
+public class TrendingLinks {
+    private static final Logger log = LoggerFactory.getLogger(TrendingLinks.class);
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L};
+
+    private final AtomicLongArray counters;
+    private final AtomicLongArray seenClicks;
+    private final int seenBitsMask;
+    // Random per instance, so clients cannot craft IPs colliding with other clients' clicks
+    private final long seenSeed = ThreadLocalRandom.current().nextLong();
+    private final int widthMask;
+    private final int topSize;
+    private final int maxCandidates;
+    private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock pruneLock = new ReentrantLock();
+
+    private volatile long admissionThreshold = 1;
+    private volatile List<TrendingLink> top = List.of();
+
+    @Autowired
+    public TrendingLinks(@Value("${tgirlclicker.trending.sketch-width:16384}") int sketchWidth,
+                         @Value("${tgirlclicker.trending.top-size:20}") int topSize,
+                         @Value("${tgirlclicker.trending.dedup-bits:4194304}") int dedupBits) {
+        if (Integer.bitCount(sketchWidth) != 1 || topSize < 1 || Integer.bitCount(dedupBits) != 1 || dedupBits < 64) {
+            throw new IllegalArgumentException("Trending sketch width and dedup bits must be powers of two, dedup "
+                    + "bits at least 64 and top size positive.");
+        }
+        this.counters = new AtomicLongArray(SEEDS.length * sketchWidth);
+        this.seenClicks = new AtomicLongArray(dedupBits / 64);
+        this.seenBitsMask = dedupBits - 1;
+        this.widthMask = sketchWidth - 1;
+        this.topSize = topSize;
+        this.maxCandidates = topSize * 8;
+    }
+
+    /**
+     * Records a click on a link, unless the client already clicked it in the current decay interval.
+     * @param shorthand the shorthand of the clicked link
+     * @param clientIp the IP address of the client
+     */
+    public void record(String shorthand, String clientIp) {
+        long key = PackedShorthand.pack(shorthand);
+        if (!markSeen(key, clientIp)) {
+            return;
+        }
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, key)));
+        }
+
+        // The lock-free contains check keeps hot links, which are candidates already, off the map's bin locks
+        if (estimate >= admissionThreshold && !candidates.contains(shorthand)) {
+            candidates.add(shorthand);
+            if (candidates.size() > maxCandidates && pruneLock.tryLock()) {
+                try {
+                    prune();
+                } finally {
+                    pruneLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the links with the most recent clicks, most popular first.
+     * @param limit the maximum number of links to return
+     * @return the trending links with their decayed click estimates
+     */
+    public List<TrendingLink> getTop(int limit) {
+        List<TrendingLink> current = top;
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    /**
+     * Recomputes the ranking from the candidates. Runs frequently, as it only touches the bounded candidate map.
+     */
+    @Scheduled(fixedDelayString = "${tgirlclicker.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        pruneLock.lock();
+        try {
+            prune();
+        } finally {
+            pruneLock.unlock();
+        }
+    }
+
+    /**
+     * Halves all counters, so older clicks lose weight over time.
+     */
+    @Scheduled(fixedRateString = "${tgirlclicker.trending.decay-interval-ms:600000}",
+            initialDelayString = "${tgirlclicker.trending.decay-interval-ms:600000}")
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >> 1);
+        }
+        for (int i = 0; i < seenClicks.length(); i++) {
+            seenClicks.set(i, 0);
+        }
+        pruneLock.lock();
+        try {
+            admissionThreshold = Math.max(1, admissionThreshold >> 1);
+            prune();
+        } finally {
+            pruneLock.unlock();
+        }
+        log.debug("decay, decayed trending counters, {} link(s) trending", top.size());
+    }
+
+    /**
+     * Re-estimates all candidates from the sketch, keeps the top ones and raises the admission threshold to the
+     * smallest count among them once the ranking is full. Must be called with the prune lock held.
+     */
+    private void prune() {
+        List<TrendingLink> ranked = new ArrayList<>(candidates.size());
+        for (String shorthand : candidates) {
+            long estimate = estimate(PackedShorthand.pack(shorthand));
+            if (estimate > 0) {
+                ranked.add(new TrendingLink(shorthand, estimate));
+            }
+        }
+        ranked.sort(Comparator.comparingLong(TrendingLink::clicks).reversed());
+
+        // Keep some links below the top as candidates, so the ranking does not flap at its lower end
+        int kept = Math.min(ranked.size(), topSize * 2);
+        candidates.retainAll(ranked.subList(0, kept).stream().map(TrendingLink::shorthand).collect(Collectors.toSet()));
+        top = List.copyOf(ranked.subList(0, Math.min(ranked.size(), topSize)));
+        admissionThreshold = top.size() < topSize ? 1 : Math.max(1, top.get(top.size() - 1).clicks());
+    }
+
+    /**
+     * Marks a click of a client on a link as seen in the Bloom filter.
+     * @return true if the click was not seen before in the current decay interval
+     */
+    private boolean markSeen(long key, String clientIp) {
+        // FNV-1a over the IP, mixed with the link key, without allocating
+        long hash = 0xcbf29ce484222325L ^ seenSeed;
+        for (int i = 0; i < clientIp.length(); i++) {
+            hash = (hash ^ clientIp.charAt(i)) * 0x100000001b3L;
+        }
+        boolean seen = true;
+        for (int row = 0; row < SEEDS.length - 1; row++) {
+            int bit = (int) mix(hash ^ key, row) & seenBitsMask;
+            long mask = 1L << (bit & 63);
+            // Plain read first, so clicks seen before never write to the shared words
+            if ((seenClicks.get(bit >>> 6) & mask) == 0
+                    && (seenClicks.getAndAccumulate(bit >>> 6, mask, (bits, added) -> bits | added) & mask) == 0) {
+                seen = false;
+            }
+        }
+        return !seen;
+    }
+
+    private long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    private int index(int row, long key) {
+        return row * (widthMask + 1) + ((int) mix(key, row) & widthMask);
+    }
+
+    private static long mix(long key, int row) {
+        // Finalizer of MurmurHash3 over the seeded key, one independent hash per row
+        long hash = key ^ SEEDS[row];
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53fe85a840dL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
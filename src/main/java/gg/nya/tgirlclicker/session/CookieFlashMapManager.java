@@ -0,0 +1,131 @@
+package gg.nya.tgirlclicker.session;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.support.AbstractFlashMapManager;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FlashMapManager storing flash attributes in an HMAC-signed cookie instead of the HTTP session.
+ * Only String attribute values are supported, which covers the messages passed from link creation to the index page.
+ * The target path and expiration time of each flash map are stored along with the attributes.
+ */
+public class CookieFlashMapManager extends AbstractFlashMapManager {
+
+    static final String COOKIE_NAME = "tgirlclicker_flash";
+
+    private static final String TARGET_PATH_KEY = "_path";
+    private static final String EXPIRATION_KEY = "_expires";
+    private static final String ATTRIBUTE_SEPARATOR = "&";
+    private static final String FLASH_MAP_SEPARATOR = "|";
+
+    private final TokenSigner tokenSigner;
+
+    public CookieFlashMapManager(TokenSigner tokenSigner) {
+        this.tokenSigner = tokenSigner;
+    }
+
+    @Override
+    protected List<FlashMap> retrieveFlashMaps(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return null;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return tokenSigner.verify(cookie.getValue())
+                        .map(payload -> decode(new String(payload, StandardCharsets.UTF_8)))
+                        .orElse(null);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void updateFlashMaps(List<FlashMap> flashMaps, HttpServletRequest request,
+                                   HttpServletResponse response) {
+        ResponseCookie.ResponseCookieBuilder cookie;
+        if (flashMaps.isEmpty()) {
+            cookie = ResponseCookie.from(COOKIE_NAME, "").maxAge(Duration.ZERO);
+        } else {
+            String token = tokenSigner.sign(encode(flashMaps).getBytes(StandardCharsets.UTF_8));
+            cookie = ResponseCookie.from(COOKIE_NAME, token).maxAge(Duration.ofSeconds(getFlashMapTimeout()));
+        }
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.path("/")
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .build()
+                .toString());
+    }
+
+    /**
+     * Encodes flash maps as URL-encoded key-value pairs.
+     * @param flashMaps the flash maps to encode
+     * @return the encoded flash maps
+     */
+    private static String encode(List<FlashMap> flashMaps) {
+        List<String> encodedMaps = new ArrayList<>(flashMaps.size());
+        for (FlashMap flashMap : flashMaps) {
+            List<String> pairs = new ArrayList<>();
+            if (flashMap.getTargetRequestPath() != null) {
+                pairs.add(pair(TARGET_PATH_KEY, flashMap.getTargetRequestPath()));
+            }
+            pairs.add(pair(EXPIRATION_KEY, Long.toString(flashMap.getExpirationTime())));
+            for (Map.Entry<String, Object> attribute : flashMap.entrySet()) {
+                if (attribute.getValue() instanceof String value) {
+                    pairs.add(pair(attribute.getKey(), value));
+                }
+            }
+            encodedMaps.add(String.join(ATTRIBUTE_SEPARATOR, pairs));
+        }
+        return String.join(FLASH_MAP_SEPARATOR, encodedMaps);
+    }
+
+    /**
+     * Decodes flash maps encoded by {@link #encode(List)}.
+     * @param encoded the encoded flash maps
+     * @return the decoded flash maps
+     */
+    private static List<FlashMap> decode(String encoded) {
+        List<FlashMap> flashMaps = new ArrayList<>();
+        for (String encodedMap : encoded.split("\\" + FLASH_MAP_SEPARATOR)) {
+            FlashMap flashMap = new FlashMap();
+            for (String pair : encodedMap.split(ATTRIBUTE_SEPARATOR)) {
+                int separator = pair.indexOf('=');
+                if (separator < 0) {
+                    continue;
+                }
+                String key = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                switch (key) {
+                    case TARGET_PATH_KEY -> flashMap.setTargetRequestPath(value);
+                    case EXPIRATION_KEY -> flashMap.setExpirationTime(Long.parseLong(value));
+                    default -> flashMap.put(key, value);
+                }
+            }
+            flashMaps.add(flashMap);
+        }
+        return flashMaps;
+    }
+
+    /**
+     * Encodes a single key-value pair.
+     * @param key the key
+     * @param value the value
+     * @return the URL-encoded pair
+     */
+    private static String pair(String key, String value) {
+        return URLEncoder.encode(key, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+package gg.nya.tgirlclicker.session;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stateless UserSession implementation keeping the visitor state in an HMAC-signed cookie.
+ * The cookie holds a random seed from which the four authorization UUIDs are derived, and a bit set of the UUIDs
+ * the visitor has already authorized. No server-side session is ever created, so memory use does not depend on the
+ * number of visitors and any instance can serve any visitor.
+ * This class is scoped to the request and uses a proxy for lazy loading.
+ */
+@Component
+@Scope(value = "request", proxyMode = ScopedProxyMode.TARGET_CLASS)
+@ConditionalOnProperty(name = "tgirlclicker.session.mode", havingValue = "stateless")
+public class CookieUserSession implements UserSession {
+    private static final Logger log = LoggerFactory.getLogger(CookieUserSession.class);
+
+    static final String COOKIE_NAME = "tgirlclicker_visitor";
+
+    private static final int SEED_LENGTH = 16;
+    private static final int AUTHORIZATION_UUID_COUNT = 3;
+    private static final int ALL_AUTHORIZED = (1 << AUTHORIZATION_UUID_COUNT) - 1;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final TokenSigner tokenSigner;
+    private final Duration cookieMaxAge;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+
+    private byte[] seed;
+    private int authorized;
+    private List<UUID> authorizeUUIDs;
+
+    @Autowired
+    public CookieUserSession(TokenSigner tokenSigner,
+                             @Value("${tgirlclicker.session.cookie-max-age:P30D}") Duration cookieMaxAge) {
+        this.tokenSigner = tokenSigner;
+        this.cookieMaxAge = cookieMaxAge;
+
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        this.request = attributes.getRequest();
+        this.response = attributes.getResponse();
+
+        readCookie();
+    }
+
+    @Override
+    public void authorize(UUID uuid) {
+        log.debug("authorize, user authorization request with UUID: {}", uuid);
+        int index = getAuthorizeUUIDs().subList(0, AUTHORIZATION_UUID_COUNT).indexOf(uuid);
+        boolean success = index >= 0 && (authorized & (1 << index)) == 0;
+        if (success) {
+            authorized |= 1 << index;
+            writeCookie();
+        }
+        log.debug("authorize, success: {}, remaining UUID count: {}", success,
+                AUTHORIZATION_UUID_COUNT - Integer.bitCount(authorized));
+
+        if (isSecretMode()) {
+            log.info("authorize, user has authorized all UUIDs, enabling secret mode.");
+        }
+    }
+
+    @Override
+    public boolean isSecretMode() {
+        return authorized == ALL_AUTHORIZED;
+    }
+
+    @Override
+    public List<UUID> getAuthorizeUUIDs() {
+        if (authorizeUUIDs == null) {
+            List<UUID> uuids = new ArrayList<>(AUTHORIZATION_UUID_COUNT + 1);
+            for (int i = 0; i <= AUTHORIZATION_UUID_COUNT; i++) {
+                uuids.add(deriveUUID(i));
+            }
+            authorizeUUIDs = List.copyOf(uuids);
+        }
+        return authorizeUUIDs;
+    }
+
+    /**
+     * Reads the visitor state from the cookie, starting a new visitor if the cookie is missing or invalid.
+     */
+    private void readCookie() {
+        String token = null;
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    token = cookie.getValue();
+                }
+            }
+        }
+
+        byte[] payload = tokenSigner.verify(token).orElse(null);
+        if (payload != null && payload.length == SEED_LENGTH + 1) {
+            seed = new byte[SEED_LENGTH];
+            System.arraycopy(payload, 0, seed, 0, SEED_LENGTH);
+            authorized = payload[SEED_LENGTH] & ALL_AUTHORIZED;
+            return;
+        }
+
+        log.info("readCookie, new visitor, generating authorization seed.");
+        seed = new byte[SEED_LENGTH];
+        RANDOM.nextBytes(seed);
+        authorized = 0;
+        writeCookie();
+    }
+
+    /**
+     * Writes the current visitor state to the response as a signed cookie.
+     */
+    private void writeCookie() {
+        if (response == null || response.isCommitted()) {
+            log.warn("writeCookie, response is not available or already committed, visitor state is not stored");
+            return;
+        }
+
+        byte[] payload = new byte[SEED_LENGTH + 1];
+        System.arraycopy(seed, 0, payload, 0, SEED_LENGTH);
+        payload[SEED_LENGTH] = (byte) authorized;
+
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, tokenSigner.sign(payload))
+                .path("/")
+                .maxAge(cookieMaxAge)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    /**
+     * Derives an authorization UUID from the visitor seed. The UUIDs are shown to the visitor, so they are derived
+     * with the signer's derivation key rather than its signing key, which would turn them into cookie signatures.
+     * @param index the index of the UUID
+     * @return the derived UUID
+     */
+    private UUID deriveUUID(int index) {
+        byte[] input = new byte[SEED_LENGTH + 1];
+        System.arraycopy(seed, 0, input, 0, SEED_LENGTH);
+        input[SEED_LENGTH] = (byte) index;
+
+        ByteBuffer mac = ByteBuffer.wrap(tokenSigner.derive(input));
+        long mostSignificant = (mac.getLong() & ~0xf000L) | 0x4000L;
+        long leastSignificant = (mac.getLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+}
@@ -0,0 +1,122 @@
+package gg.nya.tgirlclicker.session;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Signs and verifies small tokens with HMAC-SHA256.
+ * A token has the form {@code base64url(payload) + "." + base64url(signature)}, where the signature is the HMAC of
+ * the payload truncated to 16 bytes.
+ * <p>
+ * Values derived from secret inputs, such as the visitor UUIDs, may be shown to the client, so they must never equal
+ * the signature of any payload. Signatures and derived values therefore use two separate keys, each computed as the
+ * HMAC of a distinct label under the configured key.
+ */
+public class TokenSigner {
+
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String SIGNING_KEY_LABEL = "tgirlclicker-signing-key";
+    private static final String DERIVATION_KEY_LABEL = "tgirlclicker-derivation-key";
+
+    private final Mac prototype;
+    private final Mac derivationPrototype;
+
+    /**
+     * Creates a new signer.
+     * @param key the secret key both the signing and the derivation key are computed from
+     */
+    public TokenSigner(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Token signing key must not be blank.");
+        }
+        Mac master = newMac(key.getBytes(StandardCharsets.UTF_8));
+        prototype = newMac(clone(master).doFinal(SIGNING_KEY_LABEL.getBytes(StandardCharsets.UTF_8)));
+        derivationPrototype = newMac(clone(master).doFinal(DERIVATION_KEY_LABEL.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Signs a payload.
+     * @param payload the payload to sign
+     * @return the signed token
+     */
+    public String sign(byte[] payload) {
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(signature(payload));
+    }
+
+    /**
+     * Verifies a token and returns its payload.
+     * @param token the token to verify, may be null
+     * @return an Optional containing the payload if the signature is valid, or empty otherwise
+     */
+    public Optional<byte[]> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            return MessageDigest.isEqual(signature, signature(payload)) ? Optional.of(payload) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Derives a value from secret data with the derivation key, unrelated to any token signature.
+     * @param data the data to derive the value from
+     * @return the 32 byte derived value
+     */
+    public byte[] derive(byte[] data) {
+        return clone(derivationPrototype).doFinal(data);
+    }
+
+    /**
+     * Computes the truncated signature of a payload.
+     * @param payload the payload
+     * @return the signature
+     */
+    private byte[] signature(byte[] payload) {
+        return Arrays.copyOf(clone(prototype).doFinal(payload), SIGNATURE_LENGTH);
+    }
+
+    /**
+     * Creates a Mac initialized with the given key.
+     * @param key the raw key
+     * @return an initialized Mac
+     */
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns a fresh copy of an initialized Mac, as Mac instances are not thread-safe.
+     * @param prototype the initialized Mac to copy
+     * @return an initialized Mac
+     */
+    private static Mac clone(Mac prototype) {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 implementation does not support cloning", e);
+        }
+    }
+}
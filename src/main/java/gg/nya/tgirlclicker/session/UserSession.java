@@ -1,66 +1,43 @@
 package gg.nya.tgirlclicker.session;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.context.annotation.Scope;
-import org.springframework.context.annotation.ScopedProxyMode;
-import org.springframework.stereotype.Component;
-
-import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 /**
- * UserSession class to manage user-specific session data.
- * This class is scoped to the session and uses a proxy for lazy loading.
- * It handles secret mode activation and UUID authorization.
+ * Per-visitor state for the secret mode.
+ * Each visitor gets four UUIDs, of which the first three need to be POSTed to enable secret mode, and the fourth
+ * needs to be sent on link creation to create a link in alternative mode.
+ * Depending on {@code tgirlclicker.session.mode}, the state is kept in the HTTP session
+ * ({@link HttpSessionUserSession}) or in a signed cookie ({@link CookieUserSession}).
  */
-@Component
-@Scope(value = "session", proxyMode = ScopedProxyMode.TARGET_CLASS)
-public class UserSession implements Serializable {
-    private final Logger log = LoggerFactory.getLogger(UserSession.class);
-
-    //Whether the user can create alternative links
-    private boolean secretMode = false;
-    //List of UUIDs the user must POST to enable secret mode
-    private final List<UUID> authorizeUUIDs = new ArrayList<>();
-    //List of remaining UUIDs that the user has not yet authorized
-    private final List<UUID> remainingUUIDs = new ArrayList<>();
-
-    public UserSession() {
-        log.info("New UserSession initialized, generating authorization UUIDs.");
-        // Generate 4 random UUIDs, of which 3 need to be POSTed and the 4th needs to be sent on link generation
-        authorizeUUIDs.add(UUID.randomUUID());
-        authorizeUUIDs.add(UUID.randomUUID());
-        authorizeUUIDs.add(UUID.randomUUID());
-        authorizeUUIDs.add(UUID.randomUUID());
-        // Initialize remainingUUIDs with the first 3 UUIDs
-        remainingUUIDs.addAll(authorizeUUIDs.subList(0, 3));
-    }
+public interface UserSession {
 
     /**
-     * Authorizes a user by removing the provided UUID from the remaining UUIDs.
+     * Authorizes a user by marking the provided UUID as authorized.
      * If all UUIDs are authorized, secret mode is enabled.
      *
      * @param uuid the UUID to authorize
      */
-    public void authorize(UUID uuid) {
-        log.debug("authorize, user authorization request with UUID: {}", uuid);
-        boolean success = this.remainingUUIDs.remove(uuid);
-        log.debug("authorize, success: {}, remaining UUID count: {}", success, this.remainingUUIDs.size());
+    void authorize(UUID uuid);
 
-        if (this.remainingUUIDs.isEmpty()) {
-            this.secretMode = true;
-            log.info("authorize, user has authorized all UUIDs, enabling secret mode.");
-        }
-    }
+    /**
+     * Returns whether the user can create alternative links.
+     * @return true if secret mode is enabled
+     */
+    boolean isSecretMode();
 
-    public boolean isSecretMode() {
-        return secretMode;
-    }
+    /**
+     * Returns the four authorization UUIDs of the user.
+     * @return an immutable list of the authorization UUIDs
+     */
+    List<UUID> getAuthorizeUUIDs();
 
-    public List<UUID> getAuthorizeUUIDs() {
-        return List.copyOf(authorizeUUIDs);
+    /**
+     * Returns whether the user may create a link in alternative mode with the given UUID.
+     * @param uuid the UUID sent on link creation
+     * @return true if secret mode is enabled and the UUID matches the fourth authorization UUID
+     */
+    default boolean isAlternativeModeAuthorized(UUID uuid) {
+        return isSecretMode() && getAuthorizeUUIDs().get(3).equals(uuid);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+-- Random identity of this database. Local files built from the database, such as the shorthand index, record it so
+-- they are never reused against another database.
+CREATE TABLE IF NOT EXISTS database_identity (
+    id BIGINT NOT NULL
+);
+
+INSERT INTO database_identity (id)
+SELECT ('x' || substr(md5(random()::text || clock_timestamp()::text), 1, 16))::bit(64)::bigint
+WHERE NOT EXISTS (SELECT 1 FROM database_identity);
@@ -0,0 +1,11 @@
+-- Initial schema as previously generated by Hibernate. Existing databases already have this table.
+CREATE TABLE IF NOT EXISTS links (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    alternative_mode BOOLEAN      NOT NULL,
+    click_count      INTEGER      NOT NULL,
+    client_ip        VARCHAR(255) NOT NULL,
+    created_date     TIMESTAMP(6) NOT NULL,
+    link             VARCHAR(255) NOT NULL,
+    shorthand        VARCHAR(255) NOT NULL,
+    user_agent       VARCHAR(255) NOT NULL
+);
@@ -0,0 +1,2 @@
+-- Click counts are tracked as long values and would overflow an integer column
+ALTER TABLE links ALTER COLUMN click_count TYPE BIGINT;
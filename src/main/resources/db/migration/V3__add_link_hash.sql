@@ -0,0 +1,3 @@
+-- Fingerprint of the normalized destination for indexed duplicate detection, backfilled by the application
+ALTER TABLE links ADD COLUMN IF NOT EXISTS link_hash BIGINT;
+CREATE INDEX IF NOT EXISTS idx_links_link_hash_alternative_mode ON links (link_hash, alternative_mode);
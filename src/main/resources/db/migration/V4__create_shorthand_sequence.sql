@@ -0,0 +1,2 @@
+-- Sequence from which shorthand blocks are reserved. The increment is adjusted to the configured block size on startup.
+CREATE SEQUENCE IF NOT EXISTS links_shorthand_seq MINVALUE 0 START WITH 0 INCREMENT BY 100;
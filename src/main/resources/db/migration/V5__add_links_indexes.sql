@@ -0,0 +1,8 @@
+-- Redirects and shorthand allocation look links up by shorthand, which must be unique
+CREATE UNIQUE INDEX IF NOT EXISTS uk_links_shorthand ON links (shorthand);
+
+-- Recent creations per client IP, used to rebuild the rate limiter history
+CREATE INDEX IF NOT EXISTS idx_links_client_ip_created_date ON links (client_ip, created_date DESC);
+
+-- Leave room on each page so click count updates can be HOT updates. Applies to newly written pages.
+ALTER TABLE links SET (fillfactor = 80);
@@ -0,0 +1,13 @@
+-- Hourly click counts per link, compacted from the local click event logs of all instances
+CREATE TABLE IF NOT EXISTS click_rollups (
+    shorthand  VARCHAR(255)             NOT NULL,
+    hour_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    clicks     BIGINT                   NOT NULL,
+    PRIMARY KEY (shorthand, hour_start)
+);
+
+-- Click log segments already compacted, so a segment is never counted twice
+CREATE TABLE IF NOT EXISTS click_log_segments (
+    name         VARCHAR(255)             PRIMARY KEY,
+    compacted_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
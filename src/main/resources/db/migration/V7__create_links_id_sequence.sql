@@ -0,0 +1,10 @@
+-- Link ids are drawn from a sequence in blocks, so Hibernate knows the ids before inserting and can batch inserts.
+-- The increment must match the allocationSize of the id generator in Link.
+ALTER TABLE links ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS links_id_seq INCREMENT BY 50 OWNED BY links.id;
+
+-- Hibernate hands out the block ending at each drawn value, so the first value must be a full block above existing ids
+SELECT setval('links_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM links), false);
+
+-- Rows inserted without an id, e.g. by manual SQL, still get one from the sequence
+ALTER TABLE links ALTER COLUMN id SET DEFAULT nextval('links_id_seq');
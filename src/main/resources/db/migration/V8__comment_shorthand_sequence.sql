@@ -0,0 +1,5 @@
+-- The comment in V4 claimed the increment is adjusted on startup. Instances only read it, so the block size is owned
+-- by the migrations and changing it requires a new migration.
+COMMENT ON SEQUENCE links_shorthand_seq IS
+    'Shorthand blocks are reserved from this sequence. The increment is the block size, which instances read on '
+    'startup and never alter. Change it only with a migration.';
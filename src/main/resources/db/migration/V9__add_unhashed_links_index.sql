@@ -0,0 +1,3 @@
+-- Links without a fingerprint are matched by their exact destination until the application has backfilled them.
+-- The index only covers those rows, so it empties once the backfill is complete.
+CREATE INDEX IF NOT EXISTS idx_links_unhashed_link ON links (link, alternative_mode) WHERE link_hash IS NULL;
@@ -0,0 +1,74 @@
+package gg.nya.tgirlclicker.controller.model;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkDtoValidationTest {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void acceptsHttpLinks() {
+        assertTrue(validator.validate(createLink("https://example.com/path")).isEmpty());
+        assertTrue(validator.validate(bulkCreateLinks(List.of("http://example.com", "https://example.org")))
+                .isEmpty());
+    }
+
+    @Test
+    void rejectsOtherSchemes() {
+        assertFalse(validator.validate(createLink("javascript:alert(1)")).isEmpty());
+        assertFalse(validator.validate(createLink("data:text/html,hello")).isEmpty());
+        assertFalse(validator.validate(bulkCreateLinks(List.of("https://example.com", "javascript:alert(1)")))
+                .isEmpty());
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBulkRequests() {
+        assertFalse(validator.validate(bulkCreateLinks(List.of())).isEmpty());
+        assertFalse(validator.validate(bulkCreateLinks(
+                Collections.nCopies(BulkCreateLinksDto.MAX_LINKS + 1, "https://example.com"))).isEmpty());
+    }
+
+    @Test
+    void rejectsLinksLongerThanTheColumn() {
+        String maxLink = "https://example.com/" + "a".repeat(CreateLinkDto.MAX_LINK_LENGTH - 20);
+        assertTrue(validator.validate(createLink(maxLink)).isEmpty());
+        assertFalse(validator.validate(createLink(maxLink + "a")).isEmpty());
+        assertTrue(validator.validate(bulkCreateLinks(List.of(maxLink))).isEmpty());
+        assertFalse(validator.validate(bulkCreateLinks(List.of("https://example.com", maxLink + "a"))).isEmpty());
+    }
+
+    private static CreateLinkDto createLink(String link) {
+        CreateLinkDto dto = new CreateLinkDto();
+        dto.setLink(link);
+        return dto;
+    }
+
+    private static BulkCreateLinksDto bulkCreateLinks(List<String> links) {
+        BulkCreateLinksDto dto = new BulkCreateLinksDto();
+        dto.setLinks(links);
+        return dto;
+    }
+}
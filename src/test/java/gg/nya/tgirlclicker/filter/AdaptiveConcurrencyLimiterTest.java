@@ -0,0 +1,103 @@
+package gg.nya.tgirlclicker.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST_NANOS = Duration.ofMillis(1).toNanos();
+
+    @Test
+    void rejectsRequestsBeyondTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 1, 10, Duration.ofSeconds(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void growsUnderLoadUpToTheMaximum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 20, Duration.ofSeconds(1));
+        for (int round = 0; round < 20; round++) {
+            int acquired = acquireAll(limiter);
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(FAST_NANOS, false);
+            }
+            assertTrue(limiter.getLimit() <= 20);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, Duration.ofSeconds(1));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST_NANOS, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void shrinksOncePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, Duration.ofHours(1));
+        int acquired = acquireAll(limiter);
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(FAST_NANOS, true);
+        }
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void shrinksDownToTheMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, Duration.ofMillis(1));
+        for (int i = 0; i < 30; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST_NANOS, true);
+            assertTrue(limiter.getLimit() >= 2);
+            Thread.sleep(2);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void smoothsSingleSlowRequests() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, Duration.ofMillis(10));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST_NANOS, false);
+        }
+        assertTrue(limiter.tryAcquire());
+        limiter.release(Duration.ofMillis(50).toNanos(), false);
+
+        assertEquals(10, limiter.getLimit());
+        assertTrue(limiter.getSmoothedLatencyNanos() < Duration.ofMillis(10).toNanos());
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(1, 2, 20, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(10, 0, 20, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(10, 20, 2, Duration.ofSeconds(1)));
+    }
+
+    private static int acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,88 @@
+package gg.nya.tgirlclicker.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RedirectPageTemplateTest {
+
+    // The last link is escaped to more than 64 KiB, so the gzip variant needs several stored blocks
+    private static final List<String> LINKS = List.of(
+            "https://example.com/path?a=1&b=<2>&c=\"3\"&d='4'",
+            "https://example.com/ünïcødé/日本語?q=ß&emoji=🏳️‍⚧️",
+            "https://example.com/" + "&<>\"'é".repeat(12_000)
+    );
+
+    private final SpringTemplateEngine templateEngine = templateEngine();
+
+    @Test
+    void matchesTemplateEngineRendering() throws IOException {
+        RedirectPageTemplate template = new RedirectPageTemplate(templateEngine, true);
+        for (String link : LINKS) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            template.write(new MockHttpServletRequest("GET", "/abcd"), response, link);
+
+            assertNull(response.getHeader("Content-Encoding"));
+            assertEquals(render(link), response.getContentAsString(StandardCharsets.UTF_8));
+            assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        }
+    }
+
+    @Test
+    void gzipVariantDecompressesToTemplateEngineRendering() throws IOException {
+        RedirectPageTemplate template = new RedirectPageTemplate(templateEngine, true);
+        for (String link : LINKS) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abcd");
+            request.addHeader("Accept-Encoding", "gzip, deflate");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            template.write(request, response, link);
+
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+            assertEquals(render(link), gunzip(response.getContentAsByteArray()));
+        }
+    }
+
+    private String render(String link) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abcd");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        JakartaServletWebApplication webApplication =
+                JakartaServletWebApplication.buildApplication(request.getServletContext());
+        WebContext context = new WebContext(webApplication.buildExchange(request, response), request.getLocale(),
+                Map.of("link", link));
+        return templateEngine.process("redirect", context);
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+}
@@ -0,0 +1,137 @@
+package gg.nya.tgirlclicker.service.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedShorthandTableTest {
+
+    private static final long DATABASE_ID = 42;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsPutLinks() throws IOException {
+        try (MappedShorthandTable table = MappedShorthandTable.create(directory.resolve("index"), 64, 4096,
+                DATABASE_ID)) {
+            assertTrue(table.put(1, "abcd", bytes("https://example.com/a"), false));
+            assertTrue(table.put(2, "AbCd1234", bytes("https://example.com/ü"), true));
+
+            assertEquals("https://example.com/a", table.link(table.find("abcd")));
+            assertFalse(MappedShorthandTable.alternativeMode(table.find("abcd")));
+            assertEquals("https://example.com/ü", table.link(table.find("AbCd1234")));
+            assertTrue(MappedShorthandTable.alternativeMode(table.find("AbCd1234")));
+            assertEquals(-1, table.find("abce"));
+            assertEquals(2, table.size());
+            assertEquals(2, table.lastLinkId());
+        }
+    }
+
+    @Test
+    void replacesChangedLinks() throws IOException {
+        try (MappedShorthandTable table = MappedShorthandTable.create(directory.resolve("index"), 64, 4096,
+                DATABASE_ID)) {
+            assertTrue(table.put(1, "abcd", bytes("https://example.com/old"), false));
+            assertFalse(table.put(1, "abcd", bytes("https://example.com/old"), false));
+            assertTrue(table.put(1, "abcd", bytes("https://example.com/new"), false));
+            assertTrue(table.put(1, "abcd", bytes("https://example.com/new"), true));
+
+            assertEquals("https://example.com/new", table.link(table.find("abcd")));
+            assertTrue(MappedShorthandTable.alternativeMode(table.find("abcd")));
+            assertEquals(1, table.size());
+        }
+    }
+
+    @Test
+    void reportsWhenFullAndCopiesIntoLargerTable() throws IOException {
+        try (MappedShorthandTable small = MappedShorthandTable.create(directory.resolve("small"), 16, 4096,
+                DATABASE_ID);
+             MappedShorthandTable large = MappedShorthandTable.create(directory.resolve("large"), 64, 8192,
+                     DATABASE_ID)) {
+            int added = 0;
+            while (small.canFit(bytes(link(added)))) {
+                assertTrue(small.put(added + 1, shorthand(added), bytes(link(added)), added % 2 == 0));
+                added++;
+            }
+            assertEquals(11, added);
+
+            small.copyTo(large);
+            assertEquals(added, large.size());
+            assertEquals(added, large.lastLinkId());
+            for (int i = 0; i < added; i++) {
+                long entry = large.find(shorthand(i));
+                assertEquals(link(i), large.link(entry));
+                assertEquals(i % 2 == 0, MappedShorthandTable.alternativeMode(entry));
+            }
+            assertTrue(large.canFit(bytes(link(added))));
+        }
+    }
+
+    @Test
+    void reopensAfterCleanClose() throws IOException {
+        Path path = directory.resolve("index");
+        try (MappedShorthandTable table = MappedShorthandTable.create(path, 64, 4096, DATABASE_ID)) {
+            table.put(7, "abcd", bytes("https://example.com/a"), true);
+        }
+
+        try (MappedShorthandTable reopened = MappedShorthandTable.open(path, DATABASE_ID)) {
+            assertNotNull(reopened);
+            assertEquals(1, reopened.size());
+            assertEquals(7, reopened.lastLinkId());
+            assertEquals("https://example.com/a", reopened.link(reopened.find("abcd")));
+            assertTrue(reopened.put(8, "efgh", bytes("https://example.com/b"), false));
+        }
+
+        try (MappedShorthandTable reopened = MappedShorthandTable.open(path, DATABASE_ID)) {
+            assertNotNull(reopened);
+            assertEquals(2, reopened.size());
+            assertEquals("https://example.com/b", reopened.link(reopened.find("efgh")));
+        }
+    }
+
+    @Test
+    void doesNotReopenAfterUncleanClose() throws IOException {
+        Path path = directory.resolve("index");
+        try (MappedShorthandTable table = MappedShorthandTable.create(path, 64, 4096, DATABASE_ID)) {
+            table.put(1, "abcd", bytes("https://example.com/a"), false);
+        }
+
+        MappedShorthandTable crashed = MappedShorthandTable.open(path, DATABASE_ID);
+        assertNotNull(crashed);
+        crashed.force();
+        // Not closed, as after a crash
+        assertNull(MappedShorthandTable.open(path, DATABASE_ID));
+    }
+
+    @Test
+    void doesNotReopenForAnotherDatabase() throws IOException {
+        Path path = directory.resolve("index");
+        try (MappedShorthandTable table = MappedShorthandTable.create(path, 64, 4096, DATABASE_ID)) {
+            table.put(1, "abcd", bytes("https://example.com/a"), false);
+        }
+
+        assertNull(MappedShorthandTable.open(path, DATABASE_ID + 1));
+    }
+
+    private static String shorthand(int i) {
+        return "s" + (1000 + i);
+    }
+
+    private static String link(int i) {
+        return "https://example.com/" + i;
+    }
+
+    private static byte[] bytes(String link) {
+        return link.getBytes(StandardCharsets.UTF_8);
+    }
+}
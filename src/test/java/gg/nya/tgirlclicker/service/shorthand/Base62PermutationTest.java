@@ -0,0 +1,46 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Base62PermutationTest {
+
+    private static final int CODE_SPACE = 62 * 62 + 62 * 62 * 62;
+
+    private final Base62Permutation permutation = new Base62Permutation("test-permutation-key", 2, 3);
+
+    @Test
+    void mapsEverySequenceNumberToADistinctCode() {
+        Set<String> codes = new HashSet<>();
+        for (long sequence = 0; sequence < CODE_SPACE; sequence++) {
+            String code = permutation.encode(sequence);
+            assertEquals(sequence < 62 * 62 ? 2 : 3, code.length());
+            assertTrue(codes.add(code), "Duplicate code " + code + " for sequence number " + sequence);
+        }
+        assertEquals(CODE_SPACE, codes.size());
+    }
+
+    @Test
+    void rejectsSequenceNumbersOutsideTheCodeSpace() {
+        assertThrows(IllegalArgumentException.class, () -> permutation.encode(CODE_SPACE));
+        assertThrows(IllegalArgumentException.class, () -> permutation.encode(-1));
+    }
+
+    @Test
+    void differentKeysYieldDifferentPermutations() {
+        Base62Permutation other = new Base62Permutation("other-permutation-key", 2, 3);
+        int sameCodes = 0;
+        for (long sequence = 0; sequence < 1000; sequence++) {
+            if (permutation.encode(sequence).equals(other.encode(sequence))) {
+                sameCodes++;
+            }
+        }
+        assertTrue(sameCodes < 10, sameCodes + " of 1000 codes are the same under both keys");
+    }
+}
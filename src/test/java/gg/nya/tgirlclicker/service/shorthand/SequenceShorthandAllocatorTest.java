@@ -0,0 +1,83 @@
+package gg.nya.tgirlclicker.service.shorthand;
+
+import gg.nya.tgirlclicker.metrics.LinkMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequenceShorthandAllocatorTest {
+
+    private static final String KEY = "test-shorthand-key";
+
+    private final Base62Permutation permutation =
+            new Base62Permutation(KEY, ShorthandAllocator.MIN_LENGTH, ShorthandAllocator.MAX_LENGTH);
+
+    @Test
+    void allocatesDistinctShorthandsAcrossBlocks() {
+        SequenceShorthandAllocator allocator = allocator(100, new AtomicLong());
+        Set<String> shorthands = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String shorthand = allocator.allocate();
+            assertTrue(ShorthandAllocator.isWellFormed(shorthand));
+            assertFalse(isHexOnly(shorthand), "Allocated legacy-looking shorthand " + shorthand);
+            assertTrue(shorthands.add(shorthand), "Allocated " + shorthand + " twice");
+        }
+    }
+
+    @Test
+    void skipsHexOnlyCodes() {
+        long sequence = 0;
+        while (!isHexOnly(permutation.encode(sequence)) || isHexOnly(permutation.encode(sequence + 1))) {
+            sequence++;
+        }
+
+        SequenceShorthandAllocator allocator = allocator(1, new AtomicLong(sequence));
+        assertEquals(permutation.encode(sequence + 1), allocator.allocate());
+    }
+
+    @Test
+    void skipsReservedShorthands() {
+        long sequence = 0;
+        while (!permutation.encode(sequence).equals("auth")) {
+            sequence++;
+        }
+
+        long next = sequence + 1;
+        while (isHexOnly(permutation.encode(next))) {
+            next++;
+        }
+
+        SequenceShorthandAllocator allocator = allocator(1, new AtomicLong(sequence));
+        assertEquals(permutation.encode(next), allocator.allocate());
+    }
+
+    /**
+     * Creates an allocator whose sequence increments by the given block size, starting at the given value.
+     */
+    private SequenceShorthandAllocator allocator(long blockSize, AtomicLong sequence) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<ResultSetExtractor<Long>>any(),
+                eq(SequenceShorthandAllocator.SEQUENCE_NAME))).thenReturn(blockSize);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(invocation -> sequence.getAndAdd(blockSize));
+        return new SequenceShorthandAllocator(jdbcTemplate, new LinkMetrics(new SimpleMeterRegistry()), KEY);
+    }
+
+    private static boolean isHexOnly(String shorthand) {
+        return shorthand.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+}
@@ -0,0 +1,80 @@
+package gg.nya.tgirlclicker.service.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendingLinksTest {
+
+    private final TrendingLinks trendingLinks = new TrendingLinks(16384, 5, 1 << 22);
+
+    @Test
+    void ranksLinksByDistinctClients() {
+        clicks("aaaa", 10);
+        clicks("bbbb", 5);
+        clicks("cccc", 1);
+        trendingLinks.refresh();
+
+        assertEquals(List.of(new TrendingLink("aaaa", 10), new TrendingLink("bbbb", 5), new TrendingLink("cccc", 1)),
+                trendingLinks.getTop(10));
+        assertEquals(List.of(new TrendingLink("aaaa", 10)), trendingLinks.getTop(1));
+    }
+
+    @Test
+    void countsEachClientOncePerDecayInterval() {
+        for (int i = 0; i < 10; i++) {
+            trendingLinks.record("aaaa", "203.0.113.1");
+            trendingLinks.record("bbbb", "203.0.113.1");
+        }
+        trendingLinks.refresh();
+        assertEquals(List.of(1L, 1L), trendingLinks.getTop(10).stream().map(TrendingLink::clicks).toList());
+
+        trendingLinks.decay();
+        assertTrue(trendingLinks.getTop(10).isEmpty());
+
+        trendingLinks.record("aaaa", "203.0.113.1");
+        trendingLinks.refresh();
+        assertEquals(List.of(new TrendingLink("aaaa", 1)), trendingLinks.getTop(10));
+    }
+
+    @Test
+    void decayHalvesCounts() {
+        clicks("aaaa", 16);
+        clicks("bbbb", 5);
+        trendingLinks.decay();
+
+        assertEquals(List.of(new TrendingLink("aaaa", 8), new TrendingLink("bbbb", 2)), trendingLinks.getTop(10));
+
+        trendingLinks.decay();
+        trendingLinks.decay();
+        trendingLinks.decay();
+        assertEquals(List.of(new TrendingLink("aaaa", 1)), trendingLinks.getTop(10));
+    }
+
+    @Test
+    void keepsOnlyTheTopLinks() {
+        for (int link = 0; link < 30; link++) {
+            clicks("l" + (1000 + link), link + 1);
+        }
+        trendingLinks.refresh();
+
+        List<TrendingLink> top = trendingLinks.getTop(10);
+        assertEquals(5, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals("l" + (1029 - i), top.get(i).shorthand());
+            assertEquals(30 - i, top.get(i).clicks());
+        }
+    }
+
+    /**
+     * Records one click on a link from each of the given number of distinct clients.
+     */
+    private void clicks(String shorthand, int clients) {
+        for (int i = 0; i < clients; i++) {
+            trendingLinks.record(shorthand, "198.51.100." + i);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package gg.nya.tgirlclicker.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenSignerTest {
+
+    private static final int SEED_LENGTH = 16;
+
+    private final TokenSigner tokenSigner = new TokenSigner("test-signing-key");
+
+    @Test
+    void verifiesSignedPayload() {
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(payload, tokenSigner.verify(tokenSigner.sign(payload)).orElseThrow());
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = tokenSigner.sign(new byte[]{1, 2, 3});
+        String signature = token.substring(token.indexOf('.'));
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[]{1, 2, 4}) + signature;
+        assertTrue(tokenSigner.verify(tampered).isEmpty());
+    }
+
+    /**
+     * Visitor UUIDs are derived from {@code seed || index} and shown to the visitor, while the visitor cookie signs
+     * {@code seed || authorized}. A derived value must never double as the signature of the same bytes.
+     */
+    @Test
+    void derivedValuesNeverMatchSignatures() {
+        Random random = new Random(42);
+        for (int seeds = 0; seeds < 100; seeds++) {
+            byte[] input = new byte[SEED_LENGTH + 1];
+            random.nextBytes(input);
+            for (int value = 0; value < 256; value++) {
+                input[SEED_LENGTH] = (byte) value;
+                byte[] derived = Arrays.copyOf(tokenSigner.derive(input), SEED_LENGTH);
+                String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(input) + "."
+                        + Base64.getUrlEncoder().withoutPadding().encodeToString(derived);
+
+                assertFalse(Arrays.equals(derived, signatureOf(tokenSigner.sign(input))));
+                assertTrue(tokenSigner.verify(forged).isEmpty());
+            }
+        }
+    }
+
+    private static byte[] signatureOf(String token) {
+        return Base64.getUrlDecoder().decode(token.substring(token.indexOf('.') + 1));
+    }
+}